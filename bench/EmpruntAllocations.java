@@ -0,0 +1,104 @@
+import models.Emprunt;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mesure d'allocation et de temps du calcul de retard sur une liste d'emprunts,
+ * tel que la table des emprunts l'appelle (estEnRetard puis getJoursRetard par ligne).
+ *
+ * Avant : copie du calcul d'origine (champs Date, new Date() à chaque appel).
+ * Après : models.Emprunt, instant courant pris une fois par lot.
+ *
+ * Hors de l'application ; à lancer depuis la racine du dépôt :
+ *   javac -encoding UTF-8 -d /tmp/bench src/models/Emprunt.java bench/EmpruntAllocations.java
+ *   java -cp /tmp/bench EmpruntAllocations
+ * (ajouter -Xint pour l'interpréteur, sans élimination des allocations par le JIT)
+ */
+public class EmpruntAllocations {
+
+    private static final int NOMBRE_EMPRUNTS = 10_000;
+    private static final int TOURS = 100;
+
+    // Calcul d'origine, avant le passage aux millisecondes
+    private static class EmpruntAvant {
+        Date dateRetourPrevue;
+        Date dateRetourEffective;
+
+        long getJoursRetard() {
+            if (dateRetourEffective != null) {
+                long diff = dateRetourEffective.getTime() - dateRetourPrevue.getTime();
+                return Math.max(0, diff / (1000 * 60 * 60 * 24));
+            } else {
+                long diff = new Date().getTime() - dateRetourPrevue.getTime();
+                return Math.max(0, diff / (1000 * 60 * 60 * 24));
+            }
+        }
+
+        boolean estEnRetard() {
+            return getJoursRetard() > 0 && dateRetourEffective == null;
+        }
+    }
+
+    public static void main(String[] args) {
+        long maintenant = System.currentTimeMillis();
+        List<EmpruntAvant> avant = new ArrayList<>();
+        List<Emprunt> apres = new ArrayList<>();
+        for (int i = 0; i < NOMBRE_EMPRUNTS; i++) {
+            long retourPrevu = maintenant + (i % 60 - 30) * 86_400_000L;
+            EmpruntAvant ancien = new EmpruntAvant();
+            ancien.dateRetourPrevue = new Date(retourPrevu);
+            avant.add(ancien);
+            Emprunt emprunt = new Emprunt();
+            emprunt.setDateRetourPrevueMillis(retourPrevu);
+            apres.add(emprunt);
+        }
+
+        for (int essai = 0; essai < 3; essai++) {
+            mesurer("avant", () -> {
+                long somme = 0;
+                for (EmpruntAvant emprunt : avant) {
+                    if (emprunt.estEnRetard()) {
+                        somme += emprunt.getJoursRetard();
+                    }
+                }
+                return somme;
+            });
+            mesurer("après", () -> {
+                long instant = System.currentTimeMillis();
+                long somme = 0;
+                for (Emprunt emprunt : apres) {
+                    if (emprunt.estEnRetard(instant)) {
+                        somme += emprunt.getJoursRetard(instant);
+                    }
+                }
+                return somme;
+            });
+        }
+    }
+
+    private interface Lot {
+        long executer();
+    }
+
+    private static void mesurer(String nom, Lot lot) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+
+        long somme = 0;
+        long octets = threads.getThreadAllocatedBytes(id);
+        long debut = System.nanoTime();
+        for (int tour = 0; tour < TOURS; tour++) {
+            somme += lot.executer();
+        }
+        long duree = System.nanoTime() - debut;
+        octets = threads.getThreadAllocatedBytes(id) - octets;
+
+        long appels = (long) TOURS * NOMBRE_EMPRUNTS;
+        System.out.printf("%-6s %6.1f ns/ligne, %5.1f octets/ligne (contrôle %d)%n",
+                nom, (double) duree / appels, (double) octets / appels, somme);
+    }
+}
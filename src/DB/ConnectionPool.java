@@ -0,0 +1,321 @@
+package DB;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Pool de connexions borné utilisé par DatabaseConnection.
+ *
+ * Les connexions rendues aux DAO sont des proxys : close() remet la connexion
+ * physique dans le pool au lieu de la fermer.
+ */
+class ConnectionPool {
+
+    // Une connexion utilisée il y a moins de ce délai n'est pas revalidée à l'emprunt
+    private static final long FENETRE_SANS_VALIDATION_MS = 500;
+    private static final int DELAI_VALIDATION_SECONDES = 2;
+    private static final long PERIODE_MAINTENANCE_MS = 30_000;
+    private static final int TAILLE_CACHE_STATEMENTS = 64;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int tailleMin;
+    private final int tailleMax;
+    private final long delaiAttenteMs;
+    private final long dureeInactiviteMaxMs;
+    private final long seuilFuiteMs;
+
+    private final BlockingDeque<PooledConnection> libres = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> empruntees = ConcurrentHashMap.newKeySet();
+    private final Semaphore permis;
+    private final ScheduledFuture<?> maintenance;
+    private volatile boolean ferme = false;
+
+    ConnectionPool(String url, String user, String password, int tailleMin, int tailleMax,
+                   long delaiAttenteMs, long dureeInactiviteMaxMs, long seuilFuiteMs,
+                   ScheduledExecutorService planificateur) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.tailleMin = tailleMin;
+        this.tailleMax = tailleMax;
+        this.delaiAttenteMs = delaiAttenteMs;
+        this.dureeInactiviteMaxMs = dureeInactiviteMaxMs;
+        this.seuilFuiteMs = seuilFuiteMs;
+        this.permis = new Semaphore(tailleMax, true);
+
+        this.maintenance = planificateur.scheduleWithFixedDelay(this::maintenir,
+                PERIODE_MAINTENANCE_MS, PERIODE_MAINTENANCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emprunter une connexion ; bloque au plus delaiAttenteMs si le pool est saturé
+     */
+    Connection emprunter() throws SQLException {
+        if (ferme) {
+            throw new SQLException("Le pool de connexions est fermé");
+        }
+
+        try {
+            if (!permis.tryAcquire(delaiAttenteMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Aucune connexion disponible après " + delaiAttenteMs +
+                        " ms (taille max: " + tailleMax + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Attente d'une connexion interrompue", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = libres.pollFirst()) != null) {
+                if (pc.estValide()) {
+                    break;
+                }
+                pc.fermerPhysiquement();
+            }
+            if (pc == null) {
+                pc = creer();
+            }
+
+            pc.marquerEmprunt(seuilFuiteMs > 0
+                    ? new Throwable("Connexion empruntée ici") : null);
+            empruntees.add(pc);
+            return pc.nouveauProxy();
+
+        } catch (SQLException | RuntimeException e) {
+            permis.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Remettre une connexion dans le pool (appelé par close() du proxy)
+     */
+    void restituer(PooledConnection pc) {
+        if (!empruntees.remove(pc)) {
+            return;
+        }
+
+        try {
+            pc.reinitialiser();
+            if (ferme) {
+                pc.fermerPhysiquement();
+            } else {
+                // LIFO : les connexions les plus récentes restent chaudes,
+                // les plus anciennes vieillissent en fin de file et sont évincées
+                libres.offerFirst(pc);
+            }
+        } catch (SQLException e) {
+            System.err.println("Connexion invalide retirée du pool: " + e.getMessage());
+            pc.fermerPhysiquement();
+        } finally {
+            permis.release();
+        }
+    }
+
+    /**
+     * Fermer le pool et toutes les connexions libres
+     */
+    void fermer() {
+        ferme = true;
+        maintenance.cancel(false);
+
+        PooledConnection pc;
+        while ((pc = libres.pollFirst()) != null) {
+            pc.fermerPhysiquement();
+        }
+    }
+
+    private PooledConnection creer() throws SQLException {
+        return new PooledConnection(DriverManager.getConnection(url, user, password));
+    }
+
+    /**
+     * Tâche périodique : éviction des connexions inactives, maintien de la
+     * taille minimale et détection des fuites
+     */
+    private void maintenir() {
+        try {
+            long maintenant = System.currentTimeMillis();
+
+            Iterator<PooledConnection> it = libres.descendingIterator();
+            while (it.hasNext() && libres.size() + empruntees.size() > tailleMin) {
+                PooledConnection pc = it.next();
+                if (maintenant - pc.dernierUsage > dureeInactiviteMaxMs && libres.remove(pc)) {
+                    pc.fermerPhysiquement();
+                }
+            }
+
+            while (!ferme && libres.size() + empruntees.size() < tailleMin) {
+                libres.offerLast(creer());
+            }
+
+            if (seuilFuiteMs > 0) {
+                for (PooledConnection pc : empruntees) {
+                    // Proxy lu avant la date : un nouvel emprunt entre les deux a une date récente
+                    ProxyHandler proxy = pc.proxy;
+                    if (proxy != null && maintenant - pc.dateEmprunt > seuilFuiteMs) {
+                        reprendre(pc, proxy, maintenant);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la maintenance du pool: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reprendre une connexion empruntée depuis plus que le seuil de fuite : le
+     * proxy de l'emprunteur est fermé, la connexion physique aussi (ce qui annule
+     * une transaction en cours) et le permis est rendu au pool.
+     */
+    private void reprendre(PooledConnection pc, ProxyHandler proxy, long maintenant) {
+        // Le proxy de l'emprunt arbitre : s'il est déjà fermé, la connexion a été rendue
+        if (!proxy.fermer() || !empruntees.remove(pc)) {
+            return;
+        }
+        System.err.println("Fuite de connexion probable: empruntée depuis " +
+                (maintenant - pc.dateEmprunt) + " ms sans être fermée ; connexion reprise");
+        if (pc.pileEmprunt != null) {
+            pc.pileEmprunt.printStackTrace();
+        }
+        pc.fermerPhysiquement();
+        permis.release();
+    }
+
+    /**
+     * Connexion physique gérée par le pool
+     */
+    class PooledConnection {
+        final Connection physique;
+        final StatementCache statements;
+        volatile long dernierUsage = System.currentTimeMillis();
+        volatile long dateEmprunt;
+        volatile Throwable pileEmprunt;
+        // Proxy de l'emprunt en cours, fermé si la connexion est reprise
+        volatile ProxyHandler proxy;
+
+        PooledConnection(Connection physique) {
+            this.physique = physique;
+            this.statements = new StatementCache(physique, TAILLE_CACHE_STATEMENTS);
+        }
+
+        void marquerEmprunt(Throwable pile) {
+            dateEmprunt = System.currentTimeMillis();
+            pileEmprunt = pile;
+        }
+
+        boolean estValide() {
+            try {
+                if (physique.isClosed()) {
+                    return false;
+                }
+                if (System.currentTimeMillis() - dernierUsage < FENETRE_SANS_VALIDATION_MS) {
+                    return true;
+                }
+                return physique.isValid(DELAI_VALIDATION_SECONDES);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void reinitialiser() throws SQLException {
+            statements.libererTout();
+            if (!physique.getAutoCommit()) {
+                physique.rollback();
+                physique.setAutoCommit(true);
+            }
+            physique.clearWarnings();
+            dernierUsage = System.currentTimeMillis();
+            pileEmprunt = null;
+            proxy = null;
+        }
+
+        void fermerPhysiquement() {
+            try {
+                physique.close();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la fermeture d'une connexion: " + e.getMessage());
+            }
+        }
+
+        Connection nouveauProxy() {
+            proxy = new ProxyHandler(this);
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    proxy);
+        }
+    }
+
+    /**
+     * Un proxy par emprunt : une référence conservée après close() ne peut pas
+     * toucher la connexion du prochain emprunteur
+     */
+    private class ProxyHandler implements InvocationHandler {
+        private final PooledConnection pc;
+        // Écrit aussi par la maintenance quand la connexion est reprise
+        private volatile boolean fermee = false;
+
+        ProxyHandler(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        // Vrai pour le seul appelant qui ferme le proxy (close() ou reprise par le pool)
+        synchronized boolean fermer() {
+            if (fermee) {
+                return false;
+            }
+            fermee = true;
+            return true;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (fermer()) {
+                        restituer(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return fermee || pc.physique.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physique + "]";
+                default:
+                    break;
+            }
+
+            if (fermee) {
+                throw new SQLException("Connexion déjà rendue au pool");
+            }
+
+            // prepareStatement(sql) et prepareStatement(sql, clesGenerees) passent par le cache
+            if (method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || args[1] instanceof Integer)) {
+                int clesGenerees = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pc.statements.preparer((String) args[0], clesGenerees);
+            }
+
+            try {
+                return method.invoke(pc.physique, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -2,22 +2,36 @@ package DB;
 
 
 import java.sql.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/bibliotheque";
+    // useServerPrepStmts : les PreparedStatement sont préparés par le serveur, une fois par
+    // connexion ; c'est ce que réutilise le cache de statements du pool (sans cela le driver
+    // ne fait que substituer les paramètres côté client, et le cache n'épargne que l'analyse
+    // du texte SQL). Au plus POOL_TAILLE_MAX x 64 statements ouverts côté serveur.
+    private static final String URL = "jdbc:mysql://localhost:3306/bibliotheque?useServerPrepStmts=true";
     private static final String USER = "root";
     private static final String PASSWORD = ""; // Modifiez selon votre configuration
 
-    private static Connection connection = null;
+    // Paramètres du pool de connexions
+    private static final int POOL_TAILLE_MIN = 2;
+    private static final int POOL_TAILLE_MAX = 10;
+    private static final long POOL_DELAI_ATTENTE_MS = 10_000;
+    private static final long POOL_INACTIVITE_MAX_MS = 5 * 60_000;
+    private static final long POOL_SEUIL_FUITE_MS = 60_000;
 
-    // Connexion Singleton
+    // Threads des tâches de fond (maintenance du pool, réconciliations, balayage)
+    private static final int TACHES_FOND_THREADS = 2;
+
+    private static ConnectionPool pool = null;
+    private static ScheduledExecutorService planificateur = null;
+
+    // Connexion empruntée au pool ; close() la rend au pool au lieu de la fermer
     public static Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-                System.out.println("Connexion à la base de données établie avec succès!");
-            }
+            return getPool().emprunter();
         } catch (ClassNotFoundException e) {
             System.err.println("Driver JDBC non trouvé: " + e.getMessage());
             e.printStackTrace();
@@ -25,22 +39,60 @@ public class DatabaseConnection {
             System.err.println("Erreur de connexion à la base de données: " + e.getMessage());
             e.printStackTrace();
         }
-        return connection;
+        return null;
     }
 
-    // Fermer la connexion
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Connexion à la base de données fermée.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la fermeture de la connexion: " + e.getMessage());
-            e.printStackTrace();
+    private static synchronized ConnectionPool getPool() throws ClassNotFoundException {
+        if (pool == null) {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            pool = new ConnectionPool(URL, USER, PASSWORD, POOL_TAILLE_MIN, POOL_TAILLE_MAX,
+                    POOL_DELAI_ATTENTE_MS, POOL_INACTIVITE_MAX_MS, POOL_SEUIL_FUITE_MS,
+                    getPlanificateur());
+            System.out.println("Pool de connexions initialisé (" + POOL_TAILLE_MIN + "-" +
+                    POOL_TAILLE_MAX + " connexions)");
+        }
+        return pool;
+    }
+
+    /**
+     * Planificateur partagé des tâches de fond de l'application (threads démons).
+     * Quelques threads pour toutes les tâches : elles doivent rester courtes et ne
+     * pas attendre indéfiniment.
+     */
+    public static synchronized ScheduledExecutorService getPlanificateur() {
+        if (planificateur == null) {
+            AtomicInteger numero = new AtomicInteger();
+            planificateur = Executors.newScheduledThreadPool(TACHES_FOND_THREADS, r -> {
+                Thread t = new Thread(r, "taches-fond-" + numero.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return planificateur;
+    }
+
+    // Fermer le pool et ses connexions
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.fermer();
+            pool = null;
+            System.out.println("Connexions à la base de données fermées.");
         }
     }
 
+    // Statistiques du cache de PreparedStatement (toutes connexions confondues)
+    public static long getSuccesCacheRequetes() {
+        return StatementCache.SUCCES.sum();
+    }
+
+    public static long getEchecsCacheRequetes() {
+        return StatementCache.ECHECS.sum();
+    }
+
+    public static long getEvictionsCacheRequetes() {
+        return StatementCache.EVICTIONS.sum();
+    }
+
     // Méthode utilitaire pour fermer les ressources
     public static void closeResources(ResultSet rs, PreparedStatement pstmt) {
         try {
@@ -53,9 +105,8 @@ public class DatabaseConnection {
 
     // Tester la connexion
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return conn != null && conn.isValid(2);
         } catch (SQLException e) {
             return false;
         }
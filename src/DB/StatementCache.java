@@ -0,0 +1,215 @@
+package DB;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU de PreparedStatement propre à une connexion physique du pool.
+ *
+ * La clé est le texte SQL (plus le drapeau de clés générées). Chaque
+ * emprunt du statement reçoit son propre proxy, dont close() remet le
+ * statement dans le cache au lieu de le fermer ; une fois rendu, ce proxy
+ * reste fermé même si le statement est prêté à nouveau.
+ */
+class StatementCache {
+
+    // Compteurs partagés par toutes les connexions du pool
+    static final LongAdder SUCCES = new LongAdder();
+    static final LongAdder ECHECS = new LongAdder();
+    static final LongAdder EVICTIONS = new LongAdder();
+
+    private final Connection physique;
+    private final LinkedHashMap<String, Entree> entrees;
+
+    StatementCache(Connection physique, int tailleMax) {
+        this.physique = physique;
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                if (size() <= tailleMax) {
+                    return false;
+                }
+                EVICTIONS.increment();
+                eldest.getValue().evincer();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Obtenir un statement pour ce SQL, depuis le cache si possible
+     */
+    synchronized PreparedStatement preparer(String sql, int clesGenerees) throws SQLException {
+        String cle = clesGenerees + ":" + sql;
+        Entree entree = entrees.get(cle);
+        if (entree != null && entree.evincee && !entree.enUtilisation) {
+            entrees.remove(cle);
+            entree = null;
+        }
+
+        if (entree != null && !entree.enUtilisation) {
+            SUCCES.increment();
+            return entree.preter();
+        }
+
+        ECHECS.increment();
+        PreparedStatement pstmt = physique.prepareStatement(sql, clesGenerees);
+
+        // Le même SQL est déjà ouvert sur cette connexion : statement non caché
+        if (entree != null) {
+            return pstmt;
+        }
+
+        entree = new Entree(pstmt);
+        entrees.put(cle, entree);
+        return entree.preter();
+    }
+
+    /**
+     * Libérer les statements oubliés par un emprunteur avant le retour au pool
+     */
+    synchronized void libererTout() {
+        for (Entree entree : entrees.values()) {
+            if (entree.enUtilisation) {
+                entree.liberer();
+            }
+        }
+    }
+
+    /**
+     * Statement physique mis en cache
+     */
+    private class Entree {
+        final PreparedStatement physique;
+        final List<ResultSet> resultats = new ArrayList<>();
+        // Emprunt en cours, null si le statement est libre
+        Pret pret = null;
+        boolean enUtilisation = false;
+        boolean evincee = false;
+        boolean modifie = false;
+
+        Entree(PreparedStatement physique) {
+            this.physique = physique;
+        }
+
+        PreparedStatement preter() {
+            enUtilisation = true;
+            pret = new Pret(this);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    pret);
+        }
+
+        void evincer() {
+            evincee = true;
+            if (!enUtilisation) {
+                fermerPhysiquement();
+            }
+        }
+
+        void liberer() {
+            for (ResultSet rs : resultats) {
+                try {
+                    rs.close();
+                } catch (SQLException ignored) {
+                    // le statement reste utilisable
+                }
+            }
+            resultats.clear();
+            pret.ferme = true;
+            pret = null;
+            enUtilisation = false;
+
+            if (evincee) {
+                fermerPhysiquement();
+                return;
+            }
+
+            try {
+                physique.clearParameters();
+                physique.clearBatch();
+                if (modifie) {
+                    physique.setQueryTimeout(0);
+                    physique.setMaxRows(0);
+                    modifie = false;
+                }
+            } catch (SQLException e) {
+                // Statement inutilisable : il sera retiré au prochain preparer()
+                evincee = true;
+                fermerPhysiquement();
+            }
+        }
+
+        void fermerPhysiquement() {
+            try {
+                physique.close();
+            } catch (SQLException ignored) {
+                // la connexion est peut-être déjà fermée
+            }
+        }
+
+    }
+
+    /**
+     * Un emprunt du statement : fermé dès qu'il est rendu, pour qu'un ancien
+     * emprunteur n'agisse pas sur le statement prêté depuis à un autre
+     */
+    private class Pret implements InvocationHandler {
+        final Entree entree;
+        volatile boolean ferme = false;
+
+        Pret(Entree entree) {
+            this.entree = entree;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (StatementCache.this) {
+                        if (!ferme) {
+                            entree.liberer();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return ferme || entree.physique.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "setQueryTimeout":
+                case "setMaxRows":
+                    entree.modifie = true;
+                    break;
+                default:
+                    break;
+            }
+
+            if (ferme) {
+                throw new SQLException("Statement déjà fermé");
+            }
+
+            Object resultat;
+            try {
+                resultat = method.invoke(entree.physique, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (resultat instanceof ResultSet) {
+                entree.resultats.add((ResultSet) resultat);
+            }
+            return resultat;
+        }
+    }
+}
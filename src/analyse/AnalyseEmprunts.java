@@ -0,0 +1,362 @@
+package analyse;
+
+import dao.DictionnaireCategories;
+import dao.EcouteurDAO;
+import dao.EtudiantDAO;
+import dao.JournalNotifications;
+import dao.LivreDAO;
+import dao.NotificationsDAO;
+import models.Emprunt;
+import models.Etudiant;
+import models.Livre;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Statistiques d'emprunt calculées sur l'instantané en colonnes.
+ *
+ * Le calcul découpe les lignes de l'instantané en tranches traitées en
+ * parallèle (flux parallèle, pool fork/join commun), une par cœur au plus.
+ * Chaque tranche cumule dans ses propres tableaux, indexés par code d'ISBN,
+ * de filière ou de catégorie ; les tableaux des tranches sont ensuite
+ * additionnés.
+ *
+ * Catégorie et titre des livres, filière des étudiants sont gardés en
+ * mémoire, tenus à jour par les notifications des DAO, et traduits en
+ * tableaux par code avant le parcours : aucune requête par emprunt. Un
+ * livre ou un étudiant supprimé y reste, pour son historique.
+ */
+public class AnalyseEmprunts implements EcouteurDAO {
+
+    public static final int NOMBRE_LIVRES_CLASSES = 10;
+    public static final String SANS_CATEGORIE = "Sans catégorie";
+    public static final String SANS_FILIERE = "Non renseignée";
+
+    // Lignes minimum par tranche, pour que le découpage ne coûte pas plus que le parcours
+    private static final int TAILLE_TRANCHE_MIN = 16 * 1024;
+
+    private static final AnalyseEmprunts instance = new AnalyseEmprunts();
+
+    private static class InfosLivre {
+        final String titre;
+        final int idCategorie;
+
+        InfosLivre(String titre, int idCategorie) {
+            this.titre = titre;
+            this.idCategorie = idCategorie;
+        }
+    }
+
+    private final Map<String, InfosLivre> livres = new ConcurrentHashMap<>();
+    private final Map<String, String> filieres = new ConcurrentHashMap<>();
+    private volatile boolean construit = false;
+
+    // Notifications reçues avant la construction, rejouées après elle
+    private final Object verrouJournal = new Object();
+    private final JournalNotifications journal = new JournalNotifications();
+    private boolean ecoute = false;
+
+    /**
+     * Livre, filière ou catégorie, avec son nombre d'emprunts
+     */
+    public static class Ligne {
+        public final String libelle;
+        public final int emprunts;
+        // Emprunts rendus après la date prévue ou encore dehors après elle
+        // (non compté pour les livres : 0)
+        public final int enRetard;
+
+        Ligne(String libelle, int emprunts, int enRetard) {
+            this.libelle = libelle;
+            this.emprunts = emprunts;
+            this.enRetard = enRetard;
+        }
+
+        public double getTauxRetard() {
+            return emprunts > 0 ? (double) enRetard / emprunts : 0.0;
+        }
+    }
+
+    /**
+     * Résultat d'une analyse : classements par nombre d'emprunts décroissant
+     */
+    public static class Resultat {
+        public final List<Ligne> livresPlusEmpruntes = new ArrayList<>();
+        public final List<Ligne> parFiliere = new ArrayList<>();
+        public final List<Ligne> parCategorie = new ArrayList<>();
+        public int nombreEmprunts;
+        public int nombreEnRetard;
+        // Sur les emprunts rendus
+        public double dureeMoyenneJours;
+        public long dureeCalculMs;
+        public int parallelisme;
+
+        public double getTauxRetard() {
+            return nombreEmprunts > 0 ? (double) nombreEnRetard / nombreEmprunts : 0.0;
+        }
+    }
+
+    // Cumuls d'une tranche de lignes ; les retards ne sont comptés que par filière et catégorie
+    private static class Cumul {
+        final int[] parIsbn;
+        final int[] parFiliere;
+        final int[] retardsParFiliere;
+        final int[] parCategorie;
+        final int[] retardsParCategorie;
+        long joursEmprunt = 0;
+        int retournes = 0;
+        int enRetard = 0;
+
+        Cumul(int nombreIsbn, int nombreFilieres, int nombreCategories) {
+            parIsbn = new int[nombreIsbn];
+            parFiliere = new int[nombreFilieres];
+            retardsParFiliere = new int[nombreFilieres];
+            parCategorie = new int[nombreCategories];
+            retardsParCategorie = new int[nombreCategories];
+        }
+
+        Cumul fusionner(Cumul autre) {
+            additionner(parIsbn, autre.parIsbn);
+            additionner(parFiliere, autre.parFiliere);
+            additionner(retardsParFiliere, autre.retardsParFiliere);
+            additionner(parCategorie, autre.parCategorie);
+            additionner(retardsParCategorie, autre.retardsParCategorie);
+            joursEmprunt += autre.joursEmprunt;
+            retournes += autre.retournes;
+            enRetard += autre.enRetard;
+            return this;
+        }
+
+        private static void additionner(int[] cible, int[] source) {
+            for (int i = 0; i < cible.length; i++) {
+                cible[i] += source[i];
+            }
+        }
+    }
+
+    private AnalyseEmprunts() {
+        journal.ouvrir();
+    }
+
+    public static AnalyseEmprunts getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enregistrer l'écouteur, avant de lire livres et étudiants en base
+     */
+    public void ecouter() {
+        synchronized (verrouJournal) {
+            if (!ecoute) {
+                NotificationsDAO.ajouterEcouteur(this);
+                ecoute = true;
+            }
+        }
+    }
+
+    /**
+     * Mémoriser catégorie, titre et filière, puis rejouer les notifications
+     * reçues depuis {@link #ecouter}. Sans effet une fois construit : les
+     * notifications tiennent le référentiel à jour.
+     */
+    public synchronized void construire(Collection<Etudiant> etudiants, Collection<Livre> tousLivres) {
+        if (construit) {
+            return;
+        }
+        ecouter();
+        synchronized (verrouJournal) {
+            for (Livre livre : tousLivres) {
+                memoriser(livre);
+            }
+            for (Etudiant etudiant : etudiants) {
+                memoriser(etudiant);
+            }
+            journal.rejouer();
+        }
+        construit = true;
+    }
+
+    private synchronized void construireSiNecessaire() {
+        if (!construit) {
+            ecouter();
+            construire(new EtudiantDAO().getAllEtudiants(), new LivreDAO().getAllLivres());
+        }
+    }
+
+    /**
+     * Rafraîchir l'instantané puis calculer les statistiques d'emprunt
+     */
+    public Resultat analyser() {
+        construireSiNecessaire();
+        InstantaneEmprunts instantane = InstantaneEmprunts.getInstance();
+        instantane.rafraichir();
+        return instantane.lire(this::analyser);
+    }
+
+    private Resultat analyser(InstantaneEmprunts.Colonnes colonnes) {
+        long debut = System.nanoTime();
+        int aujourdhui = (int) Emprunt.aujourdhui();
+
+        // Tableaux par code : catégorie (indice dense) de chaque ISBN, filière de chaque CNE
+        DictionnaireChaines isbns = colonnes.getIsbns();
+        List<Integer> idsCategories = new ArrayList<>();
+        Map<Integer, Integer> indiceParCategorie = new HashMap<>();
+        int[] categorieParIsbn = new int[isbns.taille()];
+        for (int code = 0; code < categorieParIsbn.length; code++) {
+            InfosLivre livre = livres.get(isbns.getValeur(code));
+            int idCategorie = livre != null ? livre.idCategorie : 0;
+            categorieParIsbn[code] = indiceParCategorie.computeIfAbsent(idCategorie, id -> {
+                idsCategories.add(id);
+                return idsCategories.size() - 1;
+            });
+        }
+
+        DictionnaireChaines cnes = colonnes.getCnes();
+        DictionnaireChaines nomsFilieres = new DictionnaireChaines();
+        int[] filiereParCne = new int[cnes.taille()];
+        for (int code = 0; code < filiereParCne.length; code++) {
+            String filiere = filieres.get(cnes.getValeur(code));
+            filiereParCne[code] = nomsFilieres.coder(filiere != null && !filiere.isEmpty() ? filiere : SANS_FILIERE);
+        }
+
+        int taille = colonnes.taille();
+        // Une tranche par cœur au plus : chacune a ses compteurs par ISBN, à la taille du catalogue
+        int parallelisme = ForkJoinPool.getCommonPoolParallelism();
+        int tailleTranche = Math.max(TAILLE_TRANCHE_MIN, (taille + parallelisme - 1) / parallelisme);
+        int nombreTranches = (taille + tailleTranche - 1) / tailleTranche;
+
+        Cumul total = IntStream.range(0, nombreTranches).parallel()
+                .mapToObj(tranche -> {
+                    Cumul cumul = new Cumul(categorieParIsbn.length, nomsFilieres.taille(), idsCategories.size());
+                    int fin = Math.min(taille, (tranche + 1) * tailleTranche);
+                    for (int ligne = tranche * tailleTranche; ligne < fin; ligne++) {
+                        cumuler(colonnes, ligne, aujourdhui, categorieParIsbn, filiereParCne, cumul);
+                    }
+                    return cumul;
+                })
+                .reduce(Cumul::fusionner)
+                .orElseGet(() -> new Cumul(0, 0, 0));
+
+        Resultat resultat = new Resultat();
+        resultat.nombreEmprunts = taille;
+        resultat.nombreEnRetard = total.enRetard;
+        resultat.dureeMoyenneJours = total.retournes > 0 ? (double) total.joursEmprunt / total.retournes : 0.0;
+
+        classerLivres(isbns, total, resultat.livresPlusEmpruntes);
+        for (int code = 0; code < total.parFiliere.length; code++) {
+            resultat.parFiliere.add(new Ligne(nomsFilieres.getValeur(code),
+                    total.parFiliere[code], total.retardsParFiliere[code]));
+        }
+        for (int indice = 0; indice < total.parCategorie.length; indice++) {
+            String nom = DictionnaireCategories.getInstance().getNom(idsCategories.get(indice));
+            resultat.parCategorie.add(new Ligne(nom != null ? nom : SANS_CATEGORIE,
+                    total.parCategorie[indice], total.retardsParCategorie[indice]));
+        }
+        Comparator<Ligne> parEmprunts = Comparator.comparingInt((Ligne l) -> l.emprunts).reversed();
+        resultat.parFiliere.sort(parEmprunts);
+        resultat.parCategorie.sort(parEmprunts);
+
+        resultat.parallelisme = Math.min(parallelisme, nombreTranches);
+        resultat.dureeCalculMs = (System.nanoTime() - debut) / 1_000_000;
+        return resultat;
+    }
+
+    private static void cumuler(InstantaneEmprunts.Colonnes colonnes, int ligne, int aujourdhui,
+                                int[] categorieParIsbn, int[] filiereParCne, Cumul cumul) {
+        int codeIsbn = colonnes.getCodeIsbn(ligne);
+        int filiere = filiereParCne[colonnes.getCodeCne(ligne)];
+        int categorie = categorieParIsbn[codeIsbn];
+        int retourPrevu = colonnes.getJourRetourPrevu(ligne);
+        int retourEffectif = colonnes.getJourRetourEffectif(ligne);
+
+        boolean enRetard;
+        if (retourEffectif != InstantaneEmprunts.SANS_JOUR) {
+            enRetard = retourEffectif > retourPrevu;
+            cumul.joursEmprunt += retourEffectif - colonnes.getJourEmprunt(ligne);
+            cumul.retournes++;
+        } else {
+            enRetard = aujourdhui > retourPrevu;
+        }
+
+        cumul.parIsbn[codeIsbn]++;
+        cumul.parFiliere[filiere]++;
+        cumul.parCategorie[categorie]++;
+        if (enRetard) {
+            cumul.enRetard++;
+            cumul.retardsParFiliere[filiere]++;
+            cumul.retardsParCategorie[categorie]++;
+        }
+    }
+
+    // Les NOMBRE_LIVRES_CLASSES ISBN les plus empruntés, par un tas de taille fixe
+    private void classerLivres(DictionnaireChaines isbns, Cumul total, List<Ligne> classement) {
+        PriorityQueue<Integer> meilleurs = new PriorityQueue<>(
+                Comparator.comparingInt((Integer code) -> total.parIsbn[code]));
+        for (int code = 0; code < total.parIsbn.length; code++) {
+            if (meilleurs.size() < NOMBRE_LIVRES_CLASSES) {
+                meilleurs.add(code);
+            } else if (total.parIsbn[code] > total.parIsbn[meilleurs.peek()]) {
+                meilleurs.poll();
+                meilleurs.add(code);
+            }
+        }
+
+        while (!meilleurs.isEmpty()) {
+            int code = meilleurs.poll();
+            String isbn = isbns.getValeur(code);
+            InfosLivre livre = livres.get(isbn);
+            classement.add(0, new Ligne(livre != null ? livre.titre : isbn,
+                    total.parIsbn[code], 0));
+        }
+    }
+
+    // Écouteur des DAO
+
+    private void memoriser(Livre livre) {
+        livres.put(livre.getIsbn(), new InfosLivre(livre.getTitre(), livre.getIdCategorie()));
+    }
+
+    private void memoriser(Etudiant etudiant) {
+        if (etudiant.getFiliere() != null) {
+            filieres.put(etudiant.getCne(), etudiant.getFiliere());
+        } else {
+            filieres.remove(etudiant.getCne());
+        }
+    }
+
+    // Appliquer la notification, et la noter tant que le référentiel n'est pas construit
+    private void appliquer(Runnable notification) {
+        synchronized (verrouJournal) {
+            journal.appliquer(notification);
+        }
+    }
+
+    @Override
+    public void livreAjoute(Livre livre) {
+        livreModifie(livre);
+    }
+
+    @Override
+    public void livreModifie(Livre livre) {
+        appliquer(() -> memoriser(livre));
+    }
+
+    @Override
+    public void etudiantAjoute(Etudiant etudiant) {
+        etudiantModifie(etudiant);
+    }
+
+    @Override
+    public void etudiantModifie(Etudiant etudiant) {
+        appliquer(() -> memoriser(etudiant));
+    }
+}
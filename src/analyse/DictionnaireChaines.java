@@ -0,0 +1,50 @@
+package analyse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codage de chaînes en entiers consécutifs (0, 1, 2, ...).
+ *
+ * Chaque valeur distincte n'est stockée qu'une fois ; les colonnes ne
+ * gardent que son code. Les codes ne sont jamais réattribués.
+ */
+public class DictionnaireChaines {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] valeurs = new String[16];
+    private int taille = 0;
+
+    /**
+     * Code de la valeur, attribué à la première rencontre
+     */
+    int coder(String valeur) {
+        Integer code = codes.get(valeur);
+        if (code != null) {
+            return code;
+        }
+        if (taille == valeurs.length) {
+            valeurs = Arrays.copyOf(valeurs, taille * 2);
+        }
+        valeurs[taille] = valeur;
+        codes.put(valeur, taille);
+        return taille++;
+    }
+
+    /**
+     * Code de la valeur, -1 si elle n'a jamais été rencontrée
+     */
+    public int getCode(String valeur) {
+        Integer code = codes.get(valeur);
+        return code != null ? code : -1;
+    }
+
+    public String getValeur(int code) {
+        return valeurs[code];
+    }
+
+    public int taille() {
+        return taille;
+    }
+}
@@ -0,0 +1,292 @@
+package analyse;
+
+import dao.EmpruntDAO;
+import models.Emprunt;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Historique complet des emprunts en mémoire, stocké par colonnes.
+ *
+ * Une ligne par emprunt, rangées par id croissant, dans des tableaux de
+ * types primitifs : ISBN et CNE codés par dictionnaire, dates en jours
+ * (epoch, fuseau local), pénalité en centimes, statut sur un octet : 29
+ * octets par emprunt, contre un objet Emprunt et ses chaînes jointes.
+ *
+ * Chargé en flux depuis la table, puis rafraîchi par id : les emprunts
+ * créés depuis (avec une marge pour les insertions validées dans le
+ * désordre) et les emprunts encore actifs sont relus. Les suppressions ne
+ * sont vues qu'au rechargement complet.
+ */
+public class InstantaneEmprunts {
+
+    public static final byte EN_COURS = 0;
+    public static final byte EN_RETARD = 1;
+    public static final byte RETOURNE = 2;
+    private static final String[] NOMS_STATUTS = {"EN_COURS", "EN_RETARD", "RETOURNE"};
+
+    // Jour de retour effectif d'un emprunt non rendu
+    public static final int SANS_JOUR = Integer.MIN_VALUE;
+
+    // Ids relus sous le plus grand id connu, validés après des ids plus récents
+    private static final int MARGE_RELECTURE = 100;
+    private static final int CAPACITE_INITIALE = 1024;
+
+    private static final InstantaneEmprunts instance = new InstantaneEmprunts();
+    private static final Colonnes VIDE = new Colonnes(1);
+
+    private final EmpruntDAO empruntDAO = new EmpruntDAO();
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // null tant que le chargement n'a pas réussi ; remplacé ou modifié sous le verrou d'écriture
+    private Colonnes colonnes = null;
+    private volatile boolean charge = false;
+    private volatile long derniereMiseAJour = 0;
+
+    /**
+     * Colonnes de l'instantané ; à ne lire que dans {@link #lire}
+     */
+    public static final class Colonnes {
+        private final DictionnaireChaines isbns = new DictionnaireChaines();
+        private final DictionnaireChaines cnes = new DictionnaireChaines();
+
+        private int taille = 0;
+        private int[] ids;
+        private int[] codesIsbn;
+        private int[] codesCne;
+        private int[] joursEmprunt;
+        private int[] joursRetourPrevu;
+        private int[] joursRetourEffectif;
+        private int[] penalitesCentimes;
+        private byte[] statuts;
+
+        private Colonnes(int capacite) {
+            ids = new int[capacite];
+            codesIsbn = new int[capacite];
+            codesCne = new int[capacite];
+            joursEmprunt = new int[capacite];
+            joursRetourPrevu = new int[capacite];
+            joursRetourEffectif = new int[capacite];
+            penalitesCentimes = new int[capacite];
+            statuts = new byte[capacite];
+        }
+
+        public int taille() { return taille; }
+
+        public int getIdEmprunt(int ligne) { return ids[ligne]; }
+        public int getCodeIsbn(int ligne) { return codesIsbn[ligne]; }
+        public int getCodeCne(int ligne) { return codesCne[ligne]; }
+        public int getJourEmprunt(int ligne) { return joursEmprunt[ligne]; }
+        public int getJourRetourPrevu(int ligne) { return joursRetourPrevu[ligne]; }
+        public int getJourRetourEffectif(int ligne) { return joursRetourEffectif[ligne]; }
+        public int getPenaliteCentimes(int ligne) { return penalitesCentimes[ligne]; }
+        public byte getStatut(int ligne) { return statuts[ligne]; }
+
+        public DictionnaireChaines getIsbns() { return isbns; }
+        public DictionnaireChaines getCnes() { return cnes; }
+
+        /**
+         * Ligne de l'emprunt, -1 s'il est absent
+         */
+        public int chercher(int idEmprunt) {
+            int ligne = Arrays.binarySearch(ids, 0, taille, idEmprunt);
+            return ligne >= 0 ? ligne : -1;
+        }
+
+        /**
+         * Mémoire occupée par les tableaux, dictionnaires non compris
+         */
+        public long getOctets() {
+            return (long) ids.length * (7 * Integer.BYTES + 1);
+        }
+
+        // Ajouter la ligne, ou la remplacer si l'id est déjà présent
+        private void recevoir(int idEmprunt, String isbn, String cne, int jourEmprunt, int jourRetourPrevu,
+                              int jourRetourEffectif, int penaliteCentimes, byte statut) {
+            int ligne;
+            if (taille == 0 || ids[taille - 1] < idEmprunt) {
+                ligne = taille;
+                ouvrir(ligne);
+            } else {
+                ligne = Arrays.binarySearch(ids, 0, taille, idEmprunt);
+                if (ligne < 0) {
+                    ligne = -ligne - 1;
+                    ouvrir(ligne);
+                }
+            }
+
+            ids[ligne] = idEmprunt;
+            codesIsbn[ligne] = isbns.coder(isbn);
+            codesCne[ligne] = cnes.coder(cne);
+            joursEmprunt[ligne] = jourEmprunt;
+            joursRetourPrevu[ligne] = jourRetourPrevu;
+            joursRetourEffectif[ligne] = jourRetourEffectif;
+            penalitesCentimes[ligne] = penaliteCentimes;
+            statuts[ligne] = statut;
+        }
+
+        // Libérer la position ligne en décalant la suite (cas courant : la fin)
+        private void ouvrir(int ligne) {
+            if (taille == ids.length) {
+                int capacite = Math.max(CAPACITE_INITIALE, taille * 2);
+                ids = Arrays.copyOf(ids, capacite);
+                codesIsbn = Arrays.copyOf(codesIsbn, capacite);
+                codesCne = Arrays.copyOf(codesCne, capacite);
+                joursEmprunt = Arrays.copyOf(joursEmprunt, capacite);
+                joursRetourPrevu = Arrays.copyOf(joursRetourPrevu, capacite);
+                joursRetourEffectif = Arrays.copyOf(joursRetourEffectif, capacite);
+                penalitesCentimes = Arrays.copyOf(penalitesCentimes, capacite);
+                statuts = Arrays.copyOf(statuts, capacite);
+            }
+            int suite = taille - ligne;
+            if (suite > 0) {
+                System.arraycopy(ids, ligne, ids, ligne + 1, suite);
+                System.arraycopy(codesIsbn, ligne, codesIsbn, ligne + 1, suite);
+                System.arraycopy(codesCne, ligne, codesCne, ligne + 1, suite);
+                System.arraycopy(joursEmprunt, ligne, joursEmprunt, ligne + 1, suite);
+                System.arraycopy(joursRetourPrevu, ligne, joursRetourPrevu, ligne + 1, suite);
+                System.arraycopy(joursRetourEffectif, ligne, joursRetourEffectif, ligne + 1, suite);
+                System.arraycopy(penalitesCentimes, ligne, penalitesCentimes, ligne + 1, suite);
+                System.arraycopy(statuts, ligne, statuts, ligne + 1, suite);
+            }
+            taille++;
+        }
+
+        private EmpruntDAO.RecepteurEmprunt recepteur() {
+            return (idEmprunt, isbn, cne, dateEmprunt, dateRetourPrevue, dateRetourEffective, penalite, statut) ->
+                    recevoir(idEmprunt, isbn, cne, versJour(dateEmprunt), versJour(dateRetourPrevue),
+                            versJour(dateRetourEffective), (int) Math.round(penalite * 100), coderStatut(statut));
+        }
+    }
+
+    private InstantaneEmprunts() {}
+
+    public static InstantaneEmprunts getInstance() {
+        return instance;
+    }
+
+    /**
+     * Exécuter une lecture sur les colonnes, chargées au besoin.
+     *
+     * Les colonnes ne changent pas pendant la lecture ; elles ne doivent pas
+     * être conservées au-delà. Colonnes vides si le chargement a échoué.
+     */
+    public <R> R lire(Function<Colonnes, R> lecture) {
+        if (!estCharge()) {
+            charger();
+        }
+        verrou.readLock().lock();
+        try {
+            return lecture.apply(colonnes != null ? colonnes : VIDE);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * (Re)charger tout l'historique, sans bloquer les lectures pendant le parcours
+     */
+    public synchronized boolean charger() {
+        long debut = System.nanoTime();
+        Colonnes nouvelles = new Colonnes(CAPACITE_INITIALE);
+        if (!empruntDAO.parcourirEmprunts(0, nouvelles.recepteur())) {
+            return false;
+        }
+
+        verrou.writeLock().lock();
+        try {
+            colonnes = nouvelles;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        charge = true;
+        derniereMiseAJour = System.currentTimeMillis();
+        System.out.println("Instantané des emprunts: " + nouvelles.taille + " emprunt(s), " +
+                nouvelles.getOctets() / 1024 + " Ko (" + (System.nanoTime() - debut) / 1_000_000 + " ms)");
+        return true;
+    }
+
+    /**
+     * Relire les emprunts créés depuis la dernière mise à jour et ceux
+     * encore actifs, puis les appliquer d'un coup
+     */
+    public synchronized boolean rafraichir() {
+        if (!estCharge()) {
+            return charger();
+        }
+
+        int apresId;
+        List<Integer> actifs = new ArrayList<>();
+        verrou.readLock().lock();
+        try {
+            apresId = colonnes.taille > 0 ? Math.max(0, colonnes.ids[colonnes.taille - 1] - MARGE_RELECTURE) : 0;
+            for (int ligne = 0; ligne < colonnes.taille && colonnes.ids[ligne] <= apresId; ligne++) {
+                if (colonnes.statuts[ligne] != RETOURNE) {
+                    actifs.add(colonnes.ids[ligne]);
+                }
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+
+        // Lignes relues dans des colonnes à part, pour ne bloquer les lectures que le temps de les appliquer
+        Colonnes relues = new Colonnes(64);
+        if (!empruntDAO.parcourirEmprunts(apresId, relues.recepteur())
+                || !empruntDAO.parcourirEmprunts(actifs, relues.recepteur())) {
+            return false;
+        }
+
+        verrou.writeLock().lock();
+        try {
+            for (int ligne = 0; ligne < relues.taille; ligne++) {
+                colonnes.recevoir(relues.ids[ligne],
+                        relues.isbns.getValeur(relues.codesIsbn[ligne]),
+                        relues.cnes.getValeur(relues.codesCne[ligne]),
+                        relues.joursEmprunt[ligne], relues.joursRetourPrevu[ligne],
+                        relues.joursRetourEffectif[ligne], relues.penalitesCentimes[ligne],
+                        relues.statuts[ligne]);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        derniereMiseAJour = System.currentTimeMillis();
+        return true;
+    }
+
+    public boolean estCharge() {
+        return charge;
+    }
+
+    /**
+     * Heure (epoch ms) du dernier chargement ou rafraîchissement, 0 si aucun
+     */
+    public long getDerniereMiseAJour() {
+        return derniereMiseAJour;
+    }
+
+    /**
+     * Code du statut, -1 s'il est inconnu
+     */
+    public static byte coderStatut(String statut) {
+        for (byte code = 0; code < NOMS_STATUTS.length; code++) {
+            if (NOMS_STATUTS[code].equals(statut)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    public static String getNomStatut(byte statut) {
+        return statut >= 0 && statut < NOMS_STATUTS.length ? NOMS_STATUTS[statut] : null;
+    }
+
+    private static int versJour(Timestamp date) {
+        return date != null ? (int) Emprunt.versJour(date.getTime()) : SANS_JOUR;
+    }
+}
@@ -0,0 +1,203 @@
+package dao;
+
+import DB.DatabaseConnection;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passage des emprunts au statut EN_RETARD quand leur date de retour prévue
+ * est dépassée, en tâche de fond.
+ *
+ * Le balayage retient une marque haute : le jour (CURDATE() de la base) du
+ * dernier balayage terminé. Les passages suivants ne touchent que les
+ * emprunts échus depuis, c'est-à-dire dont la date de retour prévue est
+ * entre cette marque et aujourd'hui ; le premier passage reprend tout
+ * l'historique. Les mises à jour se font par petits lots en auto-commit pour
+ * ne garder les verrous que le temps d'un lot.
+ *
+ * Plusieurs postes peuvent tourner en même temps : un verrou nommé MySQL
+ * (GET_LOCK) réserve le balayage à un seul poste, et la condition sur le
+ * statut rend chaque lot idempotent.
+ */
+public class BalayageRetards {
+
+    private static final long PERIODE_MINUTES = 10;
+    private static final int TAILLE_LOT = 200;
+    private static final String NOM_VERROU = "bibliotheque.balayage_retards";
+
+    private static final BalayageRetards instance = new BalayageRetards();
+
+    private boolean demarre = false;
+
+    // Jour du dernier balayage terminé ; null avant le premier
+    private Date marqueHaute = null;
+
+    // Statistiques d'exécution
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder executionsIgnorees = new LongAdder();
+    private final LongAdder empruntsPassesEnRetard = new LongAdder();
+    private final LongAdder lots = new LongAdder();
+    private volatile long dureeDerniereExecutionMs = 0;
+    private volatile long derniereExecution = 0;
+
+    private BalayageRetards() {}
+
+    public static BalayageRetards getInstance() {
+        return instance;
+    }
+
+    /**
+     * Lancer un premier balayage immédiat puis un balayage périodique
+     */
+    public synchronized void demarrer() {
+        if (demarre) {
+            return;
+        }
+        DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::balayer, 0, PERIODE_MINUTES, TimeUnit.MINUTES);
+        demarre = true;
+    }
+
+    /**
+     * Balayer les emprunts échus depuis la marque haute
+     */
+    public void balayer() {
+        executer(false);
+    }
+
+    /**
+     * Balayer tous les emprunts échus, quelle que soit la marque haute
+     */
+    public void balayerTout() {
+        executer(true);
+    }
+
+    private synchronized void executer(boolean complet) {
+        long debut = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                return;
+            }
+            if (!verrouiller(conn)) {
+                // Un autre poste balaye en ce moment
+                executionsIgnorees.increment();
+                return;
+            }
+
+            try {
+                Date aujourdhui = aujourdhui(conn);
+                Date depuis = complet ? null : marqueHaute;
+                if (depuis != null && !depuis.before(aujourdhui)) {
+                    // Déjà balayé aujourd'hui : aucun emprunt n'a pu échoir depuis
+                    return;
+                }
+
+                int total = basculer(conn, depuis, aujourdhui);
+                marqueHaute = aujourdhui;
+
+                executions.increment();
+                derniereExecution = System.currentTimeMillis();
+                dureeDerniereExecutionMs = (System.nanoTime() - debut) / 1_000_000;
+                if (total > 0) {
+                    System.out.println("Balayage des retards: " + total + " emprunt(s) en retard (" +
+                            dureeDerniereExecutionMs + " ms)");
+                }
+            } finally {
+                deverrouiller(conn);
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors du balayage des retards: " + e.getMessage());
+        }
+    }
+
+    // Passer en retard, lot par lot, les emprunts échus dans [depuis, aujourdhui)
+    private int basculer(Connection conn, Date depuis, Date aujourdhui) throws SQLException {
+        String sql = "UPDATE emprunts SET statut = 'EN_RETARD' " +
+                "WHERE statut = 'EN_COURS' AND date_retour_prevue < ? " +
+                (depuis != null ? "AND date_retour_prevue >= ? " : "") +
+                "ORDER BY date_retour_prevue LIMIT " + TAILLE_LOT;
+
+        int total = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, aujourdhui);
+            if (depuis != null) {
+                pstmt.setDate(2, depuis);
+            }
+
+            // Les lignes basculées sortent de la condition : on recommence jusqu'à épuisement
+            int modifies;
+            do {
+                modifies = pstmt.executeUpdate();
+                if (modifies > 0) {
+                    lots.increment();
+                    empruntsPassesEnRetard.add(modifies);
+                    total += modifies;
+                    int changement = modifies;
+                    NotificationsDAO.notifier(ecouteur -> ecouteur.retardsModifies(changement));
+                }
+            } while (modifies == TAILLE_LOT);
+        }
+        return total;
+    }
+
+    private static Date aujourdhui(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT CURDATE()");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getDate(1);
+        }
+    }
+
+    private static boolean verrouiller(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            pstmt.setString(1, NOM_VERROU);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    // Le verrou appartient à la session : le rendre avant que la connexion retourne au pool
+    private static void deverrouiller(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, NOM_VERROU);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la libération du verrou de balayage: " + e.getMessage());
+        }
+    }
+
+    // Statistiques
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * Passages sautés parce qu'un autre poste tenait le verrou
+     */
+    public long getExecutionsIgnorees() {
+        return executionsIgnorees.sum();
+    }
+
+    public long getEmpruntsPassesEnRetard() {
+        return empruntsPassesEnRetard.sum();
+    }
+
+    public long getLots() {
+        return lots.sum();
+    }
+
+    public long getDureeDerniereExecutionMs() {
+        return dureeDerniereExecutionMs;
+    }
+
+    /**
+     * Heure (epoch ms) du dernier balayage terminé, 0 si aucun
+     */
+    public long getDerniereExecution() {
+        return derniereExecution;
+    }
+}
@@ -0,0 +1,230 @@
+package dao;
+
+import DB.DatabaseConnection;
+import models.Emprunt;
+import models.Etudiant;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Nombre d'emprunts en cours par étudiant, en mémoire.
+ *
+ * Une fiche est chargée à la première lecture. Le compteur est ensuite tenu
+ * à jour par les notifications de création et de retour d'emprunt, ce qui
+ * fait du contrôle de quota une simple lecture. Toute autre écriture sur
+ * l'étudiant retire sa fiche.
+ *
+ * Une réconciliation périodique recompte les emprunts en base pour corriger
+ * la dérive (écritures hors de l'application, passage en retard) ; un
+ * étudiant absent du comptage revient à 0. La fiche ne garde pas l'étudiant
+ * lui-même (nom, état actif) : il se périmerait sans que la réconciliation
+ * le voie, et ces lectures passent par la base (EtudiantDAO.getEtudiantParCne).
+ *
+ * C'est le seul compteur d'emprunts en cours par étudiant : l'autocomplétion
+ * du dialogue d'emprunt le lit ici, sans chargement.
+ */
+public class CacheEtudiants implements EcouteurDAO {
+
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+
+    private static final CacheEtudiants instance = new CacheEtudiants();
+
+    /**
+     * Compteur d'emprunts en cours d'un étudiant
+     */
+    static class Fiche {
+        final AtomicInteger empruntsEnCours;
+        // Nombre d'ajustements du compteur, pour écarter une réconciliation périmée
+        long ajustements = 0;
+
+        Fiche(Etudiant etudiant) {
+            this.empruntsEnCours = new AtomicInteger(etudiant.getNombreEmpruntsEnCours());
+        }
+    }
+
+    private final Map<String, Fiche> fiches = new ConcurrentHashMap<>();
+
+    // Incrémenté à chaque notification : un chargement commencé avant n'est pas mis en cache
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    private final EtudiantDAO etudiantDAO = new EtudiantDAO();
+    private volatile boolean initialise = false;
+
+    private CacheEtudiants() {}
+
+    public static CacheEtudiants getInstance() {
+        return instance;
+    }
+
+    private synchronized void initialiser() {
+        if (initialise) {
+            return;
+        }
+        NotificationsDAO.ajouterEcouteur(this);
+        DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+        initialise = true;
+    }
+
+    /**
+     * Fiche de l'étudiant, chargée par {@code chargement} si absente ;
+     * null si l'étudiant n'existe pas
+     */
+    Fiche obtenir(String cne, Function<String, Etudiant> chargement) {
+        if (!initialise) {
+            initialiser();
+        }
+
+        Fiche fiche = fiches.get(cne);
+        if (fiche != null) {
+            succes.increment();
+            return fiche;
+        }
+        echecs.increment();
+
+        long versionChargement = version.get();
+        Etudiant etudiant = chargement.apply(cne);
+        if (etudiant == null) {
+            return null;
+        }
+
+        fiche = new Fiche(etudiant);
+        if (version.get() != versionChargement) {
+            // Une écriture a pu survenir pendant le chargement : fiche non conservée
+            return fiche;
+        }
+        Fiche existante = fiches.putIfAbsent(cne, fiche);
+        return existante != null ? existante : fiche;
+    }
+
+    /**
+     * Remplir le cache avec des étudiants déjà lus (nombre d'emprunts renseigné).
+     * Une réconciliation suit aussitôt, pour les emprunts créés ou rendus
+     * pendant la lecture.
+     */
+    public void precharger(Collection<Etudiant> etudiants) {
+        if (!initialise) {
+            initialiser();
+        }
+        for (Etudiant etudiant : etudiants) {
+            fiches.putIfAbsent(etudiant.getCne(), new Fiche(etudiant));
+        }
+        DatabaseConnection.getPlanificateur().execute(this::reconcilier);
+    }
+
+    /**
+     * Nombre d'emprunts en cours d'un étudiant en cache, -1 s'il n'y est pas (aucune requête)
+     */
+    public int getEmpruntsEnCours(String cne) {
+        Fiche fiche = fiches.get(cne);
+        return fiche != null ? fiche.empruntsEnCours.get() : -1;
+    }
+
+    public void invalider(String cne) {
+        version.incrementAndGet();
+        fiches.remove(cne);
+    }
+
+    public int getTaille() {
+        return fiches.size();
+    }
+
+    public long getSucces() {
+        return succes.sum();
+    }
+
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    /**
+     * Compteurs corrigés par les réconciliations depuis le démarrage
+     */
+    public long getCorrections() {
+        return corrections.sum();
+    }
+
+    /**
+     * Recompter en base les emprunts en cours des étudiants en cache.
+     *
+     * Un compteur ajusté pendant la requête n'est pas remplacé : sa valeur
+     * en base peut précéder l'ajustement, il sera vérifié la fois suivante.
+     */
+    public void reconcilier() {
+        Map<String, Long> ajustementsAvant = new HashMap<>();
+        for (Map.Entry<String, Fiche> entree : fiches.entrySet()) {
+            synchronized (entree.getValue()) {
+                ajustementsAvant.put(entree.getKey(), entree.getValue().ajustements);
+            }
+        }
+
+        Map<String, Integer> enBase = etudiantDAO.compterEmpruntsEnCours();
+        if (enBase == null) {
+            return;
+        }
+
+        for (Map.Entry<String, Long> entree : ajustementsAvant.entrySet()) {
+            Fiche fiche = fiches.get(entree.getKey());
+            if (fiche == null) {
+                continue;
+            }
+            synchronized (fiche) {
+                int attendu = enBase.getOrDefault(entree.getKey(), 0);
+                if (fiche.ajustements == entree.getValue() && fiche.empruntsEnCours.get() != attendu) {
+                    fiche.empruntsEnCours.set(attendu);
+                    corrections.increment();
+                }
+            }
+        }
+    }
+
+    private void ajuster(String cne, int delta) {
+        version.incrementAndGet();
+        Fiche fiche = fiches.get(cne);
+        if (fiche != null) {
+            synchronized (fiche) {
+                fiche.empruntsEnCours.addAndGet(delta);
+                fiche.ajustements++;
+            }
+        }
+    }
+
+    // Écouteur des DAO
+
+    @Override
+    public void etudiantModifie(Etudiant etudiant) {
+        invalider(etudiant.getCne());
+    }
+
+    @Override
+    public void etudiantDesactive(String cne) {
+        invalider(cne);
+    }
+
+    @Override
+    public void etudiantSupprime(String cne) {
+        invalider(cne);
+    }
+
+    @Override
+    public void empruntCree(Emprunt emprunt) {
+        ajuster(emprunt.getCne(), 1);
+    }
+
+    @Override
+    public void livreRetourne(Emprunt emprunt) {
+        ajuster(emprunt.getCne(), -1);
+    }
+}
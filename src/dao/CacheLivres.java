@@ -0,0 +1,163 @@
+package dao;
+
+import models.Livre;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache en lecture des livres par ISBN, devant LivreDAO.getLivreParIsbn.
+ *
+ * LRU borné avec durée de vie : une entrée est invalidée dès qu'un DAO
+ * signale une écriture sur le livre (modification, suppression, stock),
+ * la durée de vie couvre le reste (catégorie renommée, écriture hors de
+ * l'application). Les livres rendus sont des copies : l'appelant peut les
+ * modifier sans toucher au cache.
+ */
+public class CacheLivres implements EcouteurDAO {
+
+    private static final int TAILLE_MAX = 1000;
+    private static final long DUREE_VIE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final CacheLivres instance = new CacheLivres();
+
+    private static class Entree {
+        final Livre livre;
+        final long expiration;
+
+        Entree(Livre livre, long expiration) {
+            this.livre = livre;
+            this.expiration = expiration;
+        }
+    }
+
+    private final LinkedHashMap<String, Entree> entrees;
+
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas mis en cache
+    private long version = 0;
+
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private CacheLivres() {
+        entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                if (size() <= TAILLE_MAX) {
+                    return false;
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+        NotificationsDAO.ajouterEcouteur(this);
+    }
+
+    public static CacheLivres getInstance() {
+        return instance;
+    }
+
+    /**
+     * Livre en cache, sinon chargé par {@code chargement} (hors verrou) puis mis en cache.
+     * Un livre introuvable (null) n'est pas mis en cache.
+     */
+    Livre obtenir(String isbn, Function<String, Livre> chargement) {
+        long versionChargement;
+        synchronized (this) {
+            Entree entree = entrees.get(isbn);
+            if (entree != null) {
+                if (System.nanoTime() - entree.expiration < 0) {
+                    succes.increment();
+                    return new Livre(entree.livre);
+                }
+                entrees.remove(isbn);
+                expirations.increment();
+            }
+            echecs.increment();
+            versionChargement = version;
+        }
+
+        Livre livre = chargement.apply(isbn);
+        if (livre == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (version == versionChargement) {
+                entrees.put(isbn, new Entree(new Livre(livre), System.nanoTime() + DUREE_VIE_NANOS));
+            }
+        }
+        return livre;
+    }
+
+    public synchronized void invalider(String isbn) {
+        version++;
+        if (entrees.remove(isbn) != null) {
+            invalidations.increment();
+        }
+    }
+
+    public synchronized void vider() {
+        version++;
+        invalidations.add(entrees.size());
+        entrees.clear();
+    }
+
+    public synchronized int getTaille() {
+        return entrees.size();
+    }
+
+    // Statistiques
+
+    public long getSucces() {
+        return succes.sum();
+    }
+
+    public long getEchecs() {
+        return echecs.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Part des lectures servies par le cache, entre 0 et 1
+     */
+    public double getTauxSucces() {
+        long s = succes.sum();
+        long total = s + echecs.sum();
+        return total == 0 ? 0 : (double) s / total;
+    }
+
+    // Écouteur des DAO
+
+    @Override
+    public void livreModifie(Livre livre) {
+        invalider(livre.getIsbn());
+    }
+
+    @Override
+    public void livreSupprime(String isbn) {
+        invalider(isbn);
+    }
+
+    @Override
+    public void disponibiliteModifiee(String isbn, int changement) {
+        invalider(isbn);
+    }
+}
@@ -30,6 +30,9 @@ public class CategorieDAO {
                 ResultSet generatedKeys = pstmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     categorie.setIdCategorie(generatedKeys.getInt(1));
+                    DictionnaireCategories.getInstance().enregistrer(categorie);
+                } else {
+                    DictionnaireCategories.getInstance().charger();
                 }
                 return true;
             }
@@ -53,7 +56,13 @@ public class CategorieDAO {
             pstmt.setString(2, categorie.getDescription());
             pstmt.setInt(3, categorie.getIdCategorie());
 
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                DictionnaireCategories.getInstance().enregistrer(categorie);
+                // Les livres en cache portent le nom de la catégorie
+                CacheLivres.getInstance().vider();
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la modification de la catégorie: " + e.getMessage());
@@ -77,7 +86,11 @@ public class CategorieDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, idCategorie);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                DictionnaireCategories.getInstance().retirer(idCategorie);
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la suppression de la catégorie: " + e.getMessage());
@@ -86,33 +99,26 @@ public class CategorieDAO {
     }
 
     /**
-     * Récupérer une catégorie par ID
+     * Récupérer une catégorie par ID (depuis le dictionnaire en mémoire)
      */
     public Categorie getCategorieParId(int idCategorie) {
-        String sql = "SELECT * FROM categories WHERE id_categorie = ?";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, idCategorie);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return extraireCategorie(rs);
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la récupération de la catégorie: " + e.getMessage());
-        }
-        return null;
+        return DictionnaireCategories.getInstance().get(idCategorie);
     }
 
     /**
-     * Récupérer toutes les catégories
+     * Récupérer toutes les catégories (depuis le dictionnaire en mémoire)
      */
     public List<Categorie> getAllCategories() {
+        List<Categorie> categories = DictionnaireCategories.getInstance().getToutes();
+        return categories != null ? categories : new ArrayList<>();
+    }
+
+    /**
+     * Lire toutes les catégories en base, pour le dictionnaire ; null en cas d'erreur
+     */
+    List<Categorie> chargerCategories() {
         List<Categorie> categories = new ArrayList<>();
-        String sql = "SELECT * FROM categories ORDER BY nom_categorie";
+        String sql = "SELECT * FROM categories";
 
         try (Connection conn = DatabaseConnection.getConnection();
              Statement stmt = conn.createStatement();
@@ -121,11 +127,12 @@ public class CategorieDAO {
             while (rs.next()) {
                 categories.add(extraireCategorie(rs));
             }
+            return categories;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la récupération des catégories: " + e.getMessage());
+            return null;
         }
-        return categories;
     }
 
     /**
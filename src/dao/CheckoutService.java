@@ -0,0 +1,168 @@
+package dao;
+
+import DB.DatabaseConnection;
+import models.Emprunt;
+
+import java.sql.*;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Service d'emprunt au guichet : vérification et création d'un emprunt
+ * en un minimum d'allers-retours avec la base
+ */
+public class CheckoutService {
+
+    public static final int MAX_EMPRUNTS = 3; // Nombre maximum d'emprunts en cours par étudiant
+
+    private final EmpruntDAO empruntDAO = new EmpruntDAO();
+
+    /**
+     * Raison de l'acceptation ou du refus d'un emprunt
+     */
+    public enum Motif {
+        ACCEPTE("Emprunt possible"),
+        ETUDIANT_INTROUVABLE("Étudiant non trouvé"),
+        ETUDIANT_INACTIF("Étudiant inactif"),
+        LIMITE_ATTEINTE("Limite d'emprunts atteinte"),
+        LIVRE_INTROUVABLE("Livre non trouvé"),
+        LIVRE_INDISPONIBLE("Aucun exemplaire disponible"),
+        ERREUR("Erreur de base de données");
+
+        private final String message;
+
+        Motif(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Vérifier en une seule requête l'étudiant et le livre.
+     * Un des deux identifiants peut être null si seule l'autre partie est vérifiée.
+     */
+    public Verification verifier(String cne, String isbn) {
+        Verification verification = new Verification();
+        String sql = "SELECT et.actif, CONCAT(et.prenom, ' ', et.nom) as nom_etudiant, " +
+                "(SELECT COUNT(*) FROM emprunts WHERE cne = et.cne AND statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts, " +
+                "l.titre, l.exemplaires_disponibles " +
+                "FROM (SELECT 1) d " +
+                "LEFT JOIN etudiants et ON et.cne = ? " +
+                "LEFT JOIN livres l ON l.isbn = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, cne);
+            pstmt.setString(2, isbn);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                boolean actif = rs.getBoolean("actif");
+                if (rs.wasNull()) {
+                    verification.motifEtudiant = Motif.ETUDIANT_INTROUVABLE;
+                } else {
+                    verification.nomEtudiant = rs.getString("nom_etudiant");
+                    verification.nombreEmprunts = rs.getInt("nb_emprunts");
+                    if (!actif) {
+                        verification.motifEtudiant = Motif.ETUDIANT_INACTIF;
+                    } else if (verification.nombreEmprunts >= MAX_EMPRUNTS) {
+                        verification.motifEtudiant = Motif.LIMITE_ATTEINTE;
+                    } else {
+                        verification.motifEtudiant = Motif.ACCEPTE;
+                    }
+                }
+
+                verification.titreLivre = rs.getString("titre");
+                if (verification.titreLivre == null) {
+                    verification.motifLivre = Motif.LIVRE_INTROUVABLE;
+                } else {
+                    verification.exemplairesDisponibles = rs.getInt("exemplaires_disponibles");
+                    verification.motifLivre = verification.exemplairesDisponibles > 0
+                            ? Motif.ACCEPTE : Motif.LIVRE_INDISPONIBLE;
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la vérification de l'emprunt: " + e.getMessage());
+            verification.motifEtudiant = Motif.ERREUR;
+            verification.motifLivre = Motif.ERREUR;
+        }
+        return verification;
+    }
+
+    /**
+     * Créer un emprunt en une transaction, par le même chemin que les emprunts
+     * groupés : la ligne de l'étudiant est verrouillée d'abord (FOR UPDATE),
+     * ce qui sérialise ses emprunts concurrents avant le contrôle du quota.
+     */
+    public ResultatEmprunt emprunter(String cne, String isbn, int dureeJours) {
+        ResultatLot resultat = empruntDAO.creerEmprunts(cne, Collections.singletonList(isbn), dureeJours);
+        return new ResultatEmprunt(resultat.motif, resultat.estAccepte() ? resultat.emprunts.get(0) : null);
+    }
+
+    static Date ajouterJours(Date date, int jours) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        cal.add(Calendar.DAY_OF_MONTH, jours);
+        return cal.getTime();
+    }
+
+    /**
+     * Résultat de la vérification d'un étudiant et d'un livre
+     */
+    public static class Verification {
+        public Motif motifEtudiant = Motif.ETUDIANT_INTROUVABLE;
+        public Motif motifLivre = Motif.LIVRE_INTROUVABLE;
+        public String nomEtudiant;
+        public int nombreEmprunts;
+        public String titreLivre;
+        public int exemplairesDisponibles;
+
+        public boolean estAccepte() {
+            return motifEtudiant == Motif.ACCEPTE && motifLivre == Motif.ACCEPTE;
+        }
+    }
+
+    /**
+     * Résultat d'une demande d'emprunt ; emprunt est null si refusé
+     */
+    public static class ResultatEmprunt {
+        public final Motif motif;
+        public final Emprunt emprunt;
+
+        public ResultatEmprunt(Motif motif, Emprunt emprunt) {
+            this.motif = motif;
+            this.emprunt = emprunt;
+        }
+
+        public boolean estAccepte() {
+            return motif == Motif.ACCEPTE;
+        }
+    }
+
+    /**
+     * Résultat d'un emprunt groupé (tout ou rien) ; isbnRefuse indique le livre
+     * qui a fait échouer le lot, le cas échéant
+     */
+    public static class ResultatLot {
+        public final Motif motif;
+        public final String isbnRefuse;
+        public final List<Emprunt> emprunts;
+
+        public ResultatLot(Motif motif, String isbnRefuse, List<Emprunt> emprunts) {
+            this.motif = motif;
+            this.isbnRefuse = isbnRefuse;
+            this.emprunts = emprunts;
+        }
+
+        public boolean estAccepte() {
+            return motif == Motif.ACCEPTE;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package dao;
+
+import DB.DatabaseConnection;
+import models.Emprunt;
+import models.Etudiant;
+import models.Livre;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compteurs du tableau de bord maintenus en mémoire.
+ *
+ * Initialisés une fois depuis StatistiquesDAO, puis mis à jour sur place par
+ * les notifications des DAO. Une réconciliation périodique avec la base
+ * corrige la dérive (modifications faites hors de l'application, par une
+ * autre instance ou pendant une requête de réconciliation).
+ */
+public class CompteursStatistiques implements EcouteurDAO {
+
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+    // Horizon des « échéances proches » du tableau de bord
+    public static final int JOURS_ECHEANCE_PROCHE = 3;
+
+    private static final CompteursStatistiques instance = new CompteursStatistiques();
+
+    private final LongAdder totalExemplaires = new LongAdder();
+    private final LongAdder exemplairesDisponibles = new LongAdder();
+    private final LongAdder totalEtudiants = new LongAdder();
+    private final LongAdder etudiantsActifs = new LongAdder();
+    private final LongAdder empruntsEnCours = new LongAdder();
+    private final LongAdder empruntsEnRetard = new LongAdder();
+    private final LongAdder empruntsRetournes = new LongAdder();
+    private final DoubleAdder totalPenalites = new DoubleAdder();
+
+    private final StatistiquesDAO statistiquesDAO = new StatistiquesDAO();
+    private boolean ecouteurEnregistre = false;
+    // Vrai seulement après un premier chargement réussi
+    private volatile boolean initialise = false;
+
+    private CompteursStatistiques() {}
+
+    public static CompteursStatistiques getInstance() {
+        return instance;
+    }
+
+    /**
+     * Charger les compteurs depuis la base et démarrer la réconciliation périodique.
+     * En cas d'échec, le chargement sera retenté à la lecture suivante.
+     */
+    public synchronized void initialiser() {
+        if (initialise) {
+            return;
+        }
+        // Avant la lecture, pour ne pas manquer une écriture faite pendant celle-ci
+        if (!ecouteurEnregistre) {
+            NotificationsDAO.ajouterEcouteur(this);
+            ecouteurEnregistre = true;
+        }
+        if (!reconcilier()) {
+            return;
+        }
+        DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+        initialise = true;
+    }
+
+    /**
+     * Lecture en O(1) des compteurs courants
+     */
+    public StatistiquesDAO.StatistiquesBibliotheque getStatistiques() {
+        if (!initialise) {
+            initialiser();
+        }
+
+        StatistiquesDAO.StatistiquesBibliotheque stats = new StatistiquesDAO.StatistiquesBibliotheque();
+        stats.totalExemplaires = totalExemplaires.intValue();
+        stats.exemplairesDisponibles = exemplairesDisponibles.intValue();
+        stats.totalEtudiants = totalEtudiants.intValue();
+        stats.etudiantsActifs = etudiantsActifs.intValue();
+        stats.empruntsEnCours = empruntsEnCours.intValue();
+        stats.empruntsEnRetard = empruntsEnRetard.intValue();
+        stats.empruntsRetournes = empruntsRetournes.intValue();
+        stats.totalPenalites = totalPenalites.sum();
+
+        // Retards et échéances à la date du jour, sans attendre le balayage des statuts
+        IndexEcheances echeances = IndexEcheances.getInstance();
+        if (echeances.estPret()) {
+            stats.empruntsEnRetard = echeances.compterEnRetard();
+            stats.empruntsAEcheanceProche = echeances.compterEcheancesProches(JOURS_ECHEANCE_PROCHE);
+        }
+        return stats;
+    }
+
+    /**
+     * Nombre d'emprunts d'un statut (null = tous), lu sur les compteurs ; -1 s'ils
+     * ne sont pas chargés ou si le statut n'est pas compté seul. Les trois statuts
+     * se partagent la table : tous = en cours (retards compris) + retournés.
+     */
+    public int getNombreEmprunts(String statut) {
+        if (!initialise) {
+            return -1;
+        }
+        if (statut == null) {
+            return empruntsEnCours.intValue() + empruntsRetournes.intValue();
+        }
+        return "RETOURNE".equals(statut) ? empruntsRetournes.intValue() : -1;
+    }
+
+    /**
+     * Recalculer les compteurs depuis la base.
+     *
+     * On ajoute l'écart plutôt que de remplacer la valeur, pour ne pas perdre
+     * les mises à jour concurrentes ; une écriture survenue pendant la requête
+     * peut laisser un petit écart, corrigé à la réconciliation suivante.
+     * Faux si la base n'a pas répondu : les compteurs restent inchangés.
+     */
+    public boolean reconcilier() {
+        StatistiquesDAO.StatistiquesBibliotheque stats = statistiquesDAO.getStatistiques();
+        if (stats == null) {
+            return false;
+        }
+
+        ajuster(totalExemplaires, stats.totalExemplaires);
+        ajuster(exemplairesDisponibles, stats.exemplairesDisponibles);
+        ajuster(totalEtudiants, stats.totalEtudiants);
+        ajuster(etudiantsActifs, stats.etudiantsActifs);
+        ajuster(empruntsEnCours, stats.empruntsEnCours);
+        ajuster(empruntsEnRetard, stats.empruntsEnRetard);
+        ajuster(empruntsRetournes, stats.empruntsRetournes);
+        totalPenalites.add(stats.totalPenalites - totalPenalites.sum());
+        return true;
+    }
+
+    /**
+     * Réconciliation asynchrone, pour les modifications dont l'effet exact n'est pas connu
+     */
+    public void demanderReconciliation() {
+        if (initialise) {
+            DatabaseConnection.getPlanificateur().execute(this::reconcilier);
+        }
+    }
+
+    private static void ajuster(LongAdder compteur, long valeur) {
+        compteur.add(valeur - compteur.sum());
+    }
+
+    // Écouteur des DAO
+
+    @Override
+    public void livreAjoute(Livre livre) {
+        totalExemplaires.add(livre.getNombreExemplaires());
+        exemplairesDisponibles.add(livre.getExemplairesDisponibles());
+    }
+
+    @Override
+    public void livreModifie(Livre livre) {
+        demanderReconciliation();
+    }
+
+    @Override
+    public void livreSupprime(String isbn) {
+        demanderReconciliation();
+    }
+
+    @Override
+    public void disponibiliteModifiee(String isbn, int changement) {
+        exemplairesDisponibles.add(changement);
+    }
+
+    @Override
+    public void etudiantAjoute(Etudiant etudiant) {
+        totalEtudiants.increment();
+        etudiantsActifs.increment();
+    }
+
+    @Override
+    public void etudiantModifie(Etudiant etudiant) {
+        demanderReconciliation();
+    }
+
+    @Override
+    public void etudiantDesactive(String cne) {
+        etudiantsActifs.decrement();
+    }
+
+    @Override
+    public void etudiantSupprime(String cne) {
+        demanderReconciliation();
+    }
+
+    @Override
+    public void empruntCree(Emprunt emprunt) {
+        empruntsEnCours.increment();
+    }
+
+    @Override
+    public void livreRetourne(Emprunt emprunt) {
+        empruntsEnCours.decrement();
+        empruntsRetournes.increment();
+        totalPenalites.add(emprunt.getPenalite());
+    }
+
+    @Override
+    public void retardsModifies(int changement) {
+        empruntsEnRetard.add(changement);
+    }
+}
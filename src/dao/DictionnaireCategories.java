@@ -0,0 +1,163 @@
+package dao;
+
+import models.Categorie;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catégories en mémoire, par identifiant.
+ *
+ * Chargé une fois (au démarrage ou à la première lecture) ; après un échec,
+ * les lectures ne réinterrogent pas la base avant un délai. Chaque écriture
+ * de CategorieDAO construit une nouvelle copie du dictionnaire et la publie
+ * d'un coup : les lecteurs ne prennent aucun verrou et voient toujours un
+ * état complet. Les catégories stockées ne sont jamais modifiées ; les
+ * lectures pour l'interface rendent des copies.
+ */
+public class DictionnaireCategories {
+
+    private static final DictionnaireCategories instance = new DictionnaireCategories();
+
+    // Délai avant de retenter un chargement échoué
+    private static final long DELAI_NOUVELLE_TENTATIVE_MS = 30_000;
+
+    private static class Etat {
+        final Map<Integer, Categorie> parId;
+        final List<Categorie> parNom;
+
+        Etat(Map<Integer, Categorie> parId) {
+            this.parId = Collections.unmodifiableMap(parId);
+            List<Categorie> triees = new ArrayList<>(parId.values());
+            Collator collator = Collator.getInstance(Locale.FRENCH);
+            triees.sort((a, b) -> collator.compare(a.getNomCategorie(), b.getNomCategorie()));
+            this.parNom = Collections.unmodifiableList(triees);
+        }
+    }
+
+    private final CategorieDAO categorieDAO = new CategorieDAO();
+
+    // null tant que le chargement n'a pas réussi
+    private volatile Etat etat;
+    private volatile long prochaineTentative = 0;
+
+    private DictionnaireCategories() {}
+
+    public static DictionnaireCategories getInstance() {
+        return instance;
+    }
+
+    /**
+     * (Re)charger toutes les catégories depuis la base
+     */
+    public synchronized void charger() {
+        List<Categorie> categories = categorieDAO.chargerCategories();
+        if (categories == null) {
+            prochaineTentative = System.currentTimeMillis() + DELAI_NOUVELLE_TENTATIVE_MS;
+            return;
+        }
+        Map<Integer, Categorie> parId = new HashMap<>();
+        for (Categorie categorie : categories) {
+            parId.put(categorie.getIdCategorie(), categorie);
+        }
+        etat = new Etat(parId);
+    }
+
+    public boolean estCharge() {
+        return etat != null;
+    }
+
+    /**
+     * Charger si ce n'est pas fait, sauf dans le délai qui suit un échec.
+     * À appeler avant d'ouvrir une connexion dont on lira des noms de catégorie.
+     */
+    void chargerSiNecessaire() {
+        if (etat == null && System.currentTimeMillis() >= prochaineTentative) {
+            synchronized (this) {
+                if (etat == null && System.currentTimeMillis() >= prochaineTentative) {
+                    charger();
+                }
+            }
+        }
+    }
+
+    private Etat etat() {
+        chargerSiNecessaire();
+        return etat;
+    }
+
+    /**
+     * Nom de la catégorie, null si inconnue (comme la jointure externe qu'il remplace)
+     */
+    public String getNom(int idCategorie) {
+        Etat courant = etat();
+        if (courant == null) {
+            return null;
+        }
+        Categorie categorie = courant.parId.get(idCategorie);
+        return categorie != null ? categorie.getNomCategorie() : null;
+    }
+
+    /**
+     * Nom de la catégorie sans interroger la base, null si le dictionnaire
+     * n'est pas chargé (lecture d'un ResultSet, connexion déjà prise)
+     */
+    String getNomCharge(int idCategorie) {
+        Etat courant = etat;
+        Categorie categorie = courant != null ? courant.parId.get(idCategorie) : null;
+        return categorie != null ? categorie.getNomCategorie() : null;
+    }
+
+    Categorie get(int idCategorie) {
+        Etat courant = etat();
+        Categorie categorie = courant != null ? courant.parId.get(idCategorie) : null;
+        return categorie != null ? copier(categorie) : null;
+    }
+
+    /**
+     * Copies des catégories, triées par nom ; null si le chargement a échoué
+     */
+    List<Categorie> getToutes() {
+        Etat courant = etat();
+        if (courant == null) {
+            return null;
+        }
+        List<Categorie> copies = new ArrayList<>(courant.parNom.size());
+        for (Categorie categorie : courant.parNom) {
+            copies.add(copier(categorie));
+        }
+        return copies;
+    }
+
+    // Mises à jour après une écriture réussie : nouvelle copie publiée d'un coup
+
+    synchronized void enregistrer(Categorie categorie) {
+        if (etat == null) {
+            charger();
+            return;
+        }
+        Map<Integer, Categorie> parId = new HashMap<>(etat.parId);
+        parId.put(categorie.getIdCategorie(), copier(categorie));
+        etat = new Etat(parId);
+    }
+
+    synchronized void retirer(int idCategorie) {
+        if (etat == null) {
+            charger();
+            return;
+        }
+        Map<Integer, Categorie> parId = new HashMap<>(etat.parId);
+        parId.remove(idCategorie);
+        etat = new Etat(parId);
+    }
+
+    private static Categorie copier(Categorie categorie) {
+        return new Categorie(categorie.getIdCategorie(), categorie.getNomCategorie(),
+                categorie.getDescription());
+    }
+}
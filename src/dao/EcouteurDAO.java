@@ -0,0 +1,46 @@
+package dao;
+
+import models.Emprunt;
+import models.Etudiant;
+import models.Livre;
+
+/**
+ * Écouteur des modifications effectuées par les DAO.
+ *
+ * Les méthodes sont appelées après une écriture réussie, sur le thread
+ * qui a fait l'écriture. Toutes ont une implémentation vide par défaut.
+ */
+public interface EcouteurDAO {
+
+    default void livreAjoute(Livre livre) {}
+
+    default void livreModifie(Livre livre) {}
+
+    default void livreSupprime(String isbn) {}
+
+    /**
+     * Le nombre d'exemplaires disponibles d'un livre a changé de {@code changement}
+     */
+    default void disponibiliteModifiee(String isbn, int changement) {}
+
+    default void etudiantAjoute(Etudiant etudiant) {}
+
+    default void etudiantModifie(Etudiant etudiant) {}
+
+    default void etudiantDesactive(String cne) {}
+
+    default void etudiantSupprime(String cne) {}
+
+    default void empruntCree(Emprunt emprunt) {}
+
+    /**
+     * Un emprunt a été retourné ; {@code emprunt} porte déjà la date de retour et la pénalité
+     */
+    default void livreRetourne(Emprunt emprunt) {}
+
+    /**
+     * Le nombre d'emprunts au statut EN_RETARD a changé de {@code changement}
+     * (balayage des retards, retour d'un emprunt en retard)
+     */
+    default void retardsModifies(int changement) {}
+}
@@ -4,9 +4,17 @@ import DB.DatabaseConnection;
 import models.Emprunt;
 
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object pour la gestion des emprunts
@@ -15,81 +23,341 @@ public class EmpruntDAO {
 
     private static final int DUREE_EMPRUNT_JOURS = 14; // Durée standard d'un emprunt
     private static final double PENALITE_PAR_JOUR = 2.0; // Pénalité par jour de retard
+    private static final int TAILLE_LOT_RETOURS = 200; // Retours par transaction
+    private static final int TAILLE_LOT_LECTURE = 500; // Identifiants par requête IN
 
     /**
-     * Créer un nouvel emprunt
+     * Créer un nouvel emprunt, aux dates qu'il porte.
+     *
+     * Passe par le même chemin que les emprunts groupés (creerEmprunts) :
+     * une transaction, étudiant verrouillé, quota et stock contrôlés. Vrai si
+     * l'emprunt est créé ; son identifiant et son statut sont alors renseignés.
      */
     public boolean creerEmprunt(Emprunt emprunt) {
+        CheckoutService.ResultatLot resultat = creerEmprunts(emprunt.getCne(),
+                Collections.singletonList(emprunt.getIsbn()),
+                emprunt.getDateEmprunt(), emprunt.getDateRetourPrevue());
+        if (!resultat.estAccepte()) {
+            System.err.println("Emprunt refusé pour le livre " + emprunt.getIsbn() + ": " +
+                    resultat.motif.getMessage());
+            return false;
+        }
+
+        emprunt.setIdEmprunt(resultat.emprunts.get(0).getIdEmprunt());
+        emprunt.setStatut("EN_COURS");
+        return true;
+    }
+
+    /**
+     * Créer plusieurs emprunts pour un même étudiant, tout ou rien.
+     *
+     * Une transaction : verrouillage de l'étudiant et contrôle du quota pour le lot
+     * entier, décréments de stock conditionnels en batch, puis insertions en batch.
+     */
+    public CheckoutService.ResultatLot creerEmprunts(String cne, List<String> isbns, int dureeJours) {
+        Date dateEmprunt = new Date();
+        return creerEmprunts(cne, isbns, dateEmprunt, CheckoutService.ajouterJours(dateEmprunt, dureeJours));
+    }
+
+    private CheckoutService.ResultatLot creerEmprunts(String cne, List<String> isbns,
+                                                      Date dateEmprunt, Date dateRetourPrevue) {
+        String sqlEtudiant = "SELECT et.actif, " +
+                "(SELECT COUNT(*) FROM emprunts WHERE cne = et.cne AND statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts " +
+                "FROM etudiants et WHERE et.cne = ? FOR UPDATE";
+        String sqlStock = "UPDATE livres SET exemplaires_disponibles = exemplaires_disponibles - 1 " +
+                "WHERE isbn = ? AND exemplaires_disponibles > 0";
         String sql = "INSERT INTO emprunts (isbn, cne, date_emprunt, date_retour_prevue, statut) " +
-                "VALUES (?, ?, ?, ?, ?)";
+                "VALUES (?, ?, ?, ?, 'EN_COURS')";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        if (isbns.isEmpty()) {
+            return new CheckoutService.ResultatLot(CheckoutService.Motif.LIVRE_INTROUVABLE, null, new ArrayList<>());
+        }
 
-            pstmt.setString(1, emprunt.getIsbn());
-            pstmt.setString(2, emprunt.getCne());
-            pstmt.setTimestamp(3, new Timestamp(emprunt.getDateEmprunt().getTime()));
-            pstmt.setTimestamp(4, new Timestamp(emprunt.getDateRetourPrevue().getTime()));
-            pstmt.setString(5, "EN_COURS");
+        List<Emprunt> emprunts = new ArrayList<>();
+        String isbnRefuse = null;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmtEtudiant = conn.prepareStatement(sqlEtudiant);
+                 PreparedStatement pstmtStock = conn.prepareStatement(sqlStock);
+                 PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                // Le verrou sur l'étudiant sérialise les emprunts concurrents du même étudiant
+                pstmtEtudiant.setString(1, cne);
+                ResultSet rs = pstmtEtudiant.executeQuery();
+                CheckoutService.Motif motifEtudiant;
+                if (!rs.next()) {
+                    motifEtudiant = CheckoutService.Motif.ETUDIANT_INTROUVABLE;
+                } else if (!rs.getBoolean("actif")) {
+                    motifEtudiant = CheckoutService.Motif.ETUDIANT_INACTIF;
+                } else if (rs.getInt("nb_emprunts") + isbns.size() > CheckoutService.MAX_EMPRUNTS) {
+                    motifEtudiant = CheckoutService.Motif.LIMITE_ATTEINTE;
+                } else {
+                    motifEtudiant = CheckoutService.Motif.ACCEPTE;
+                }
 
-            int rowsAffected = pstmt.executeUpdate();
+                if (motifEtudiant != CheckoutService.Motif.ACCEPTE) {
+                    conn.rollback();
+                    return new CheckoutService.ResultatLot(motifEtudiant, null, new ArrayList<>());
+                }
 
-            if (rowsAffected > 0) {
-                ResultSet generatedKeys = pstmt.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    emprunt.setIdEmprunt(generatedKeys.getInt(1));
+                for (String isbn : isbns) {
+                    pstmtStock.setString(1, isbn);
+                    pstmtStock.addBatch();
+                }
+                int[] resultatsStock = pstmtStock.executeBatch();
+                for (int i = 0; i < resultatsStock.length; i++) {
+                    if (resultatsStock[i] == 0) {
+                        isbnRefuse = isbns.get(i);
+                        break;
+                    }
                 }
 
-                // Mettre à jour la disponibilité du livre
-                new LivreDAO().mettreAJourDisponibilite(emprunt.getIsbn(), -1);
+                if (isbnRefuse == null) {
+                    Timestamp tsEmprunt = new Timestamp(dateEmprunt.getTime());
+                    Timestamp tsRetourPrevu = new Timestamp(dateRetourPrevue.getTime());
+                    for (String isbn : isbns) {
+                        pstmt.setString(1, isbn);
+                        pstmt.setString(2, cne);
+                        pstmt.setTimestamp(3, tsEmprunt);
+                        pstmt.setTimestamp(4, tsRetourPrevu);
+                        pstmt.addBatch();
+                        emprunts.add(new Emprunt(isbn, cne, dateEmprunt, dateRetourPrevue));
+                    }
+                    pstmt.executeBatch();
+
+                    ResultSet generatedKeys = pstmt.getGeneratedKeys();
+                    for (int i = 0; i < emprunts.size() && generatedKeys.next(); i++) {
+                        emprunts.get(i).setIdEmprunt(generatedKeys.getInt(1));
+                    }
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
 
-                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
         } catch (SQLException e) {
-            System.err.println("Erreur lors de la création de l'emprunt: " + e.getMessage());
+            System.err.println("Erreur lors de la création des emprunts: " + e.getMessage());
+            return new CheckoutService.ResultatLot(CheckoutService.Motif.ERREUR, null, new ArrayList<>());
+        }
+
+        if (isbnRefuse != null) {
+            CheckoutService.Motif motif = new CheckoutService().verifier(null, isbnRefuse).motifLivre;
+            if (motif == CheckoutService.Motif.ACCEPTE) {
+                // Même livre demandé plus de fois qu'il n'a d'exemplaires
+                motif = CheckoutService.Motif.LIVRE_INDISPONIBLE;
+            }
+            return new CheckoutService.ResultatLot(motif, isbnRefuse, new ArrayList<>());
+        }
+
+        for (Emprunt emprunt : emprunts) {
+            NotificationsDAO.notifier(ecouteur -> ecouteur.disponibiliteModifiee(emprunt.getIsbn(), -1));
+            NotificationsDAO.notifier(ecouteur -> ecouteur.empruntCree(emprunt));
         }
-        return false;
+        return new CheckoutService.ResultatLot(CheckoutService.Motif.ACCEPTE, null, emprunts);
     }
 
     /**
      * Retourner un livre emprunté
      */
     public boolean retournerLivre(int idEmprunt) {
-        // Récupérer l'emprunt
-        Emprunt emprunt = getEmpruntParId(idEmprunt);
-        if (emprunt == null || !emprunt.getStatut().equals("EN_COURS")) {
-            return false;
+        ResultatRetours resultat = retournerLivres(Collections.singletonList(idEmprunt));
+        return resultat.getNombreRetournes() == 1;
+    }
+
+    /**
+     * Retourner un lot d'emprunts par leurs identifiants
+     */
+    public ResultatRetours retournerLivres(List<Integer> idsEmprunt) {
+        long debut = System.nanoTime();
+        ResultatRetours resultat = new ResultatRetours();
+        List<Emprunt> aRetourner = new ArrayList<>();
+        List<String> referencesARetourner = new ArrayList<>();
+
+        // Résolution de tous les identifiants en une requête (par tranche de TAILLE_LOT_RETOURS)
+        // Tranche non lue : ses emprunts sont en erreur, pas introuvables
+        Map<Integer, Emprunt> trouves = new HashMap<>();
+        Set<Integer> nonResolus = new HashSet<>();
+        for (int i = 0; i < idsEmprunt.size(); i += TAILLE_LOT_RETOURS) {
+            List<Integer> tranche = idsEmprunt.subList(i, Math.min(i + TAILLE_LOT_RETOURS, idsEmprunt.size()));
+            String sql = "SELECT id_emprunt, isbn, cne, date_emprunt, date_retour_prevue, statut " +
+                    "FROM emprunts WHERE id_emprunt IN (" + ListeIn.marqueurs(tranche.size()) + ")";
+
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                ListeIn.lierEntiers(pstmt, tranche);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Emprunt emprunt = extraireEmpruntSimple(rs);
+                    trouves.put(emprunt.getIdEmprunt(), emprunt);
+                }
+
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la résolution des retours: " + e.getMessage());
+                nonResolus.addAll(tranche);
+            }
         }
 
-        Date dateRetour = new Date();
-        long joursRetard = emprunt.getJoursRetard();
-        double penalite = joursRetard > 0 ? joursRetard * PENALITE_PAR_JOUR : 0.0;
-        String statut = joursRetard > 0 ? "RETOURNE" : "RETOURNE";
+        for (Integer id : idsEmprunt) {
+            Emprunt emprunt = trouves.remove(id);
+            if (nonResolus.contains(id)) {
+                resultat.ajouter(String.valueOf(id), id, IssueRetour.ERREUR, 0);
+            } else if (emprunt == null) {
+                resultat.ajouter(String.valueOf(id), 0, IssueRetour.INTROUVABLE, 0);
+            } else if ("RETOURNE".equals(emprunt.getStatut())) {
+                resultat.ajouter(String.valueOf(id), id, IssueRetour.DEJA_RETOURNE, 0);
+            } else {
+                aRetourner.add(emprunt);
+                referencesARetourner.add(String.valueOf(id));
+            }
+        }
 
-        String sql = "UPDATE emprunts SET date_retour_effective = ?, penalite = ?, statut = ? " +
-                "WHERE id_emprunt = ?";
+        appliquerRetours(aRetourner, referencesARetourner, resultat);
+        resultat.dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        return resultat;
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Retourner un lot de livres scannés par ISBN ; chaque scan retourne
+     * l'emprunt en cours le plus ancien de ce livre
+     */
+    public ResultatRetours retournerLivresParIsbn(List<String> isbns) {
+        long debut = System.nanoTime();
+        ResultatRetours resultat = new ResultatRetours();
+        List<Emprunt> aRetourner = new ArrayList<>();
+        List<String> referencesARetourner = new ArrayList<>();
+
+        Map<String, Deque<Emprunt>> enCoursParIsbn = new HashMap<>();
+        Set<String> nonResolus = new HashSet<>();
+        List<String> distincts = new ArrayList<>(new LinkedHashSet<>(isbns));
+        for (int i = 0; i < distincts.size(); i += TAILLE_LOT_RETOURS) {
+            List<String> tranche = distincts.subList(i, Math.min(i + TAILLE_LOT_RETOURS, distincts.size()));
+            String sql = "SELECT id_emprunt, isbn, cne, date_emprunt, date_retour_prevue, statut " +
+                    "FROM emprunts WHERE statut IN ('EN_COURS', 'EN_RETARD') AND isbn IN (" + ListeIn.marqueurs(tranche.size()) + ") " +
+                    "ORDER BY date_emprunt, id_emprunt";
+
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                ListeIn.lierChaines(pstmt, tranche);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Emprunt emprunt = extraireEmpruntSimple(rs);
+                    enCoursParIsbn.computeIfAbsent(emprunt.getIsbn(), k -> new ArrayDeque<>()).add(emprunt);
+                }
+
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la résolution des retours: " + e.getMessage());
+                nonResolus.addAll(tranche);
+            }
+        }
+
+        for (String isbn : isbns) {
+            Deque<Emprunt> enCours = enCoursParIsbn.get(isbn);
+            Emprunt emprunt = enCours != null ? enCours.pollFirst() : null;
+            if (nonResolus.contains(isbn)) {
+                resultat.ajouter(isbn, 0, IssueRetour.ERREUR, 0);
+            } else if (emprunt == null) {
+                resultat.ajouter(isbn, 0, IssueRetour.INTROUVABLE, 0);
+            } else {
+                aRetourner.add(emprunt);
+                referencesARetourner.add(isbn);
+            }
+        }
 
-            pstmt.setTimestamp(1, new Timestamp(dateRetour.getTime()));
-            pstmt.setDouble(2, penalite);
-            pstmt.setString(3, statut);
-            pstmt.setInt(4, idEmprunt);
+        appliquerRetours(aRetourner, referencesARetourner, resultat);
+        resultat.dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        return resultat;
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
+    /**
+     * Calculer les pénalités en mémoire puis appliquer les retours par tranches,
+     * chaque tranche dans sa propre transaction avec des mises à jour en batch
+     */
+    private void appliquerRetours(List<Emprunt> emprunts, List<String> references,
+                                  ResultatRetours resultat) {
+        String sqlEmprunt = "UPDATE emprunts SET date_retour_effective = ?, penalite = ?, statut = 'RETOURNE' " +
+                "WHERE id_emprunt = ? AND statut IN ('EN_COURS', 'EN_RETARD')";
+        String sqlStock = "UPDATE livres SET exemplaires_disponibles = exemplaires_disponibles + 1 " +
+                "WHERE isbn = ?";
+
+        long dateRetour = System.currentTimeMillis();
+        Timestamp tsRetour = new Timestamp(dateRetour);
+        for (Emprunt emprunt : emprunts) {
+            emprunt.setDateRetourEffectiveMillis(dateRetour);
+            long joursRetard = emprunt.getJoursRetard();
+            emprunt.setPenalite(joursRetard > 0 ? joursRetard * PENALITE_PAR_JOUR : 0.0);
+        }
 
-            if (rowsAffected > 0) {
-                // Mettre à jour la disponibilité du livre
-                new LivreDAO().mettreAJourDisponibilite(emprunt.getIsbn(), 1);
-                return true;
+        for (int i = 0; i < emprunts.size(); i += TAILLE_LOT_RETOURS) {
+            List<Emprunt> tranche = emprunts.subList(i, Math.min(i + TAILLE_LOT_RETOURS, emprunts.size()));
+            boolean[] retourne = new boolean[tranche.size()];
+            boolean stockModifie = false;
+
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlEmprunt);
+                     PreparedStatement pstmtStock = conn.prepareStatement(sqlStock)) {
+
+                    for (Emprunt emprunt : tranche) {
+                        pstmt.setTimestamp(1, tsRetour);
+                        pstmt.setDouble(2, emprunt.getPenalite());
+                        pstmt.setInt(3, emprunt.getIdEmprunt());
+                        pstmt.addBatch();
+                    }
+                    int[] resultats = pstmt.executeBatch();
+
+                    // Un emprunt retourné entre-temps par un autre guichet ne touche pas le stock
+                    for (int k = 0; k < tranche.size(); k++) {
+                        if (resultats[k] != 0) {
+                            retourne[k] = true;
+                            stockModifie = true;
+                            pstmtStock.setString(1, tranche.get(k).getIsbn());
+                            pstmtStock.addBatch();
+                        }
+                    }
+                    if (stockModifie) {
+                        pstmtStock.executeBatch();
+                    }
+                    conn.commit();
+
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+
+            } catch (SQLException e) {
+                System.err.println("Erreur lors du retour des livres: " + e.getMessage());
+                for (int k = 0; k < tranche.size(); k++) {
+                    resultat.ajouter(references.get(i + k), tranche.get(k).getIdEmprunt(), IssueRetour.ERREUR, 0);
+                }
+                continue;
             }
 
-        } catch (SQLException e) {
-            System.err.println("Erreur lors du retour du livre: " + e.getMessage());
+            for (int k = 0; k < tranche.size(); k++) {
+                Emprunt emprunt = tranche.get(k);
+                if (!retourne[k]) {
+                    resultat.ajouter(references.get(i + k), emprunt.getIdEmprunt(), IssueRetour.DEJA_RETOURNE, 0);
+                    continue;
+                }
+                boolean etaitEnRetard = "EN_RETARD".equals(emprunt.getStatut());
+                emprunt.setStatut("RETOURNE");
+                resultat.ajouter(references.get(i + k), emprunt.getIdEmprunt(),
+                        IssueRetour.RETOURNE, emprunt.getPenalite());
+                NotificationsDAO.notifier(ecouteur -> ecouteur.disponibiliteModifiee(emprunt.getIsbn(), 1));
+                NotificationsDAO.notifier(ecouteur -> ecouteur.livreRetourne(emprunt));
+                if (etaitEnRetard) {
+                    NotificationsDAO.notifier(ecouteur -> ecouteur.retardsModifies(-1));
+                }
+            }
         }
-        return false;
     }
 
     /**
@@ -145,17 +413,238 @@ public class EmpruntDAO {
         return emprunts;
     }
 
+    /**
+     * Ligne brute de la table emprunts, reçue pendant un parcours
+     */
+    @FunctionalInterface
+    public interface RecepteurEmprunt {
+        void recevoir(int idEmprunt, String isbn, String cne, Timestamp dateEmprunt,
+                      Timestamp dateRetourPrevue, Timestamp dateRetourEffective,
+                      double penalite, String statut);
+    }
+
+    /**
+     * Parcourir, par id croissant, les emprunts d'id supérieur à {@code apresId}.
+     *
+     * Les lignes sont lues en flux (sans jointure ni objet Emprunt) : la
+     * mémoire utilisée ne dépend pas du nombre d'emprunts. Faux en cas d'erreur.
+     */
+    public boolean parcourirEmprunts(int apresId, RecepteurEmprunt recepteur) {
+        String sql = "SELECT id_emprunt, isbn, cne, date_emprunt, date_retour_prevue, " +
+                "date_retour_effective, penalite, statut FROM emprunts " +
+                "WHERE id_emprunt > ? ORDER BY id_emprunt";
+
+        // Hors du cache de statements : le réglage de flux est propre à cette lecture
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Connector/J : Integer.MIN_VALUE lit les lignes une à une au lieu de tout charger
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            pstmt.setInt(1, apresId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    transmettre(rs, recepteur);
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors du parcours des emprunts: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Relire les emprunts dont les ids sont donnés, par lots. Faux en cas d'erreur.
+     */
+    public boolean parcourirEmprunts(List<Integer> idsEmprunt, RecepteurEmprunt recepteur) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int debut = 0; debut < idsEmprunt.size(); debut += TAILLE_LOT_LECTURE) {
+                List<Integer> lot = idsEmprunt.subList(debut,
+                        Math.min(debut + TAILLE_LOT_LECTURE, idsEmprunt.size()));
+                String sql = "SELECT id_emprunt, isbn, cne, date_emprunt, date_retour_prevue, " +
+                        "date_retour_effective, penalite, statut FROM emprunts " +
+                        "WHERE id_emprunt IN (" + ListeIn.marqueurs(lot.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ListeIn.lierEntiers(pstmt, lot);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            transmettre(rs, recepteur);
+                        }
+                    }
+                }
+            }
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la relecture des emprunts: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void transmettre(ResultSet rs, RecepteurEmprunt recepteur) throws SQLException {
+        recepteur.recevoir(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getTimestamp(4),
+                rs.getTimestamp(5), rs.getTimestamp(6), rs.getDouble(7), rs.getString(8));
+    }
+
+    /**
+     * Récupérer une page d'emprunts, du plus récent au plus ancien (pagination par curseur).
+     * Passer afterDate = null pour la première page, puis la date et l'id du dernier
+     * emprunt de la page précédente. null en cas d'erreur.
+     */
+    public List<Emprunt> getEmprunts(Date afterDate, int afterId, int limit) {
+        return getEmprunts(null, afterDate, afterId, limit);
+    }
+
+    /**
+     * Page d'emprunts par curseur, filtrée sur un statut (null = tous les statuts).
+     * null en cas d'erreur, à distinguer d'une page vide (fin de la liste).
+     */
+    public List<Emprunt> getEmprunts(String statut, Date afterDate, int afterId, int limit) {
+        String sql = "SELECT e.*, l.titre as titre_livre, " +
+                "CONCAT(et.prenom, ' ', et.nom) as nom_etudiant " +
+                "FROM emprunts e " +
+                "JOIN livres l ON e.isbn = l.isbn " +
+                "JOIN etudiants et ON e.cne = et.cne " +
+                conditionsPage(statut, afterDate) +
+                "ORDER BY e.date_emprunt DESC, e.id_emprunt DESC LIMIT ?";
+
+        List<Emprunt> emprunts = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = lierConditionsPage(pstmt, statut, afterDate, afterId);
+            pstmt.setInt(index, limit);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                emprunts.add(extraireEmprunt(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des emprunts: " + e.getMessage());
+            return null;
+        }
+        return emprunts;
+    }
+
+    /**
+     * Page d'emprunts commençant « saut » lignes après le curseur (afterDate = null :
+     * depuis le début), même ordre que getEmprunts. Pour les sauts dans la liste :
+     * la clé (date, id) de la ligne qui précède la page est lue sur la seule table
+     * des emprunts, puis la page est lue par curseur avec ses jointures.
+     * null en cas d'erreur.
+     */
+    public List<Emprunt> getEmpruntsApresSaut(String statut, Date afterDate, int afterId, int saut, int limit) {
+        if (saut <= 0) {
+            return getEmprunts(statut, afterDate, afterId, limit);
+        }
+
+        String sql = "SELECT e.date_emprunt, e.id_emprunt FROM emprunts e " +
+                conditionsPage(statut, afterDate) +
+                "ORDER BY e.date_emprunt DESC, e.id_emprunt DESC LIMIT 1 OFFSET ?";
+
+        Timestamp cleDate;
+        int cleId;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = lierConditionsPage(pstmt, statut, afterDate, afterId);
+            pstmt.setInt(index, saut - 1);
+
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                // Saut au-delà de la fin de la liste
+                return new ArrayList<>();
+            }
+            cleDate = rs.getTimestamp(1);
+            cleId = rs.getInt(2);
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des emprunts: " + e.getMessage());
+            return null;
+        }
+        return getEmprunts(statut, cleDate, cleId, limit);
+    }
+
+    private static String conditionsPage(String statut, Date afterDate) {
+        List<String> conditions = new ArrayList<>();
+        if (statut != null) {
+            conditions.add("e.statut = ?");
+        }
+        if (afterDate != null) {
+            conditions.add("(e.date_emprunt < ? OR (e.date_emprunt = ? AND e.id_emprunt < ?))");
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    // Paramètres de conditionsPage ; rend l'index du paramètre suivant
+    private static int lierConditionsPage(PreparedStatement pstmt, String statut, Date afterDate, int afterId)
+            throws SQLException {
+        int index = 1;
+        if (statut != null) {
+            pstmt.setString(index++, statut);
+        }
+        if (afterDate != null) {
+            Timestamp curseur = new Timestamp(afterDate.getTime());
+            pstmt.setTimestamp(index++, curseur);
+            pstmt.setTimestamp(index++, curseur);
+            pstmt.setInt(index++, afterId);
+        }
+        return index;
+    }
+
+    /**
+     * Nombre exact d'emprunts pour un statut (null = tous). Tous et RETOURNE se
+     * lisent sur les compteurs en mémoire, tenus à jour à chaque emprunt et
+     * retour ; sinon, ou s'ils ne sont pas encore chargés, COUNT(*) en base.
+     */
+    public int compterEmprunts(String statut) {
+        int enMemoire = CompteursStatistiques.getInstance().getNombreEmprunts(statut);
+        if (enMemoire >= 0) {
+            return enMemoire;
+        }
+
+        String sql = "SELECT COUNT(*) as nb FROM emprunts" + (statut != null ? " WHERE statut = ?" : "");
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (statut != null) {
+                pstmt.setString(1, statut);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                return rs.getInt("nb");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors du comptage des emprunts: " + e.getMessage());
+        }
+        return 0;
+    }
+
     /**
      * Récupérer les emprunts en cours
      */
     public List<Emprunt> getEmpruntsEnCours() {
+        List<Emprunt> emprunts = chargerEmpruntsEnCours();
+        return emprunts != null ? emprunts : new ArrayList<>();
+    }
+
+    /**
+     * Emprunts actifs par date de retour prévue ; null en cas d'erreur
+     */
+    List<Emprunt> chargerEmpruntsEnCours() {
         List<Emprunt> emprunts = new ArrayList<>();
         String sql = "SELECT e.*, l.titre as titre_livre, " +
                 "CONCAT(et.prenom, ' ', et.nom) as nom_etudiant " +
                 "FROM emprunts e " +
                 "JOIN livres l ON e.isbn = l.isbn " +
                 "JOIN etudiants et ON e.cne = et.cne " +
-                "WHERE e.statut = 'EN_COURS' " +
+                "WHERE e.statut IN ('EN_COURS', 'EN_RETARD') " +
                 "ORDER BY e.date_retour_prevue";
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -168,12 +657,13 @@ public class EmpruntDAO {
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la récupération des emprunts en cours: " + e.getMessage());
+            return null;
         }
         return emprunts;
     }
 
     /**
-     * Récupérer les emprunts en retard
+     * Récupérer les emprunts en retard (statut posé par le balayage des retards)
      */
     public List<Emprunt> getEmpruntsEnRetard() {
         List<Emprunt> emprunts = new ArrayList<>();
@@ -182,7 +672,7 @@ public class EmpruntDAO {
                 "FROM emprunts e " +
                 "JOIN livres l ON e.isbn = l.isbn " +
                 "JOIN etudiants et ON e.cne = et.cne " +
-                "WHERE e.statut = 'EN_COURS' AND e.date_retour_prevue < CURDATE() " +
+                "WHERE e.statut = 'EN_RETARD' " +
                 "ORDER BY e.date_retour_prevue";
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -258,20 +748,10 @@ public class EmpruntDAO {
     }
 
     /**
-     * Mettre à jour le statut des emprunts en retard
+     * Mettre à jour le statut des emprunts en retard (balayage complet, par petits lots)
      */
     public void mettreAJourStatutsRetard() {
-        String sql = "UPDATE emprunts SET statut = 'EN_RETARD' " +
-                "WHERE statut = 'EN_COURS' AND date_retour_prevue < CURDATE()";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            stmt.executeUpdate(sql);
-
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la mise à jour des statuts: " + e.getMessage());
-        }
+        BalayageRetards.getInstance().balayerTout();
     }
 
     /**
@@ -281,8 +761,8 @@ public class EmpruntDAO {
         EmpruntStatistiques stats = new EmpruntStatistiques();
 
         String sql = "SELECT " +
-                "(SELECT COUNT(*) FROM emprunts WHERE statut = 'EN_COURS') as en_cours, " +
-                "(SELECT COUNT(*) FROM emprunts WHERE statut = 'EN_COURS' AND date_retour_prevue < CURDATE()) as en_retard, " +
+                "(SELECT COUNT(*) FROM emprunts WHERE statut IN ('EN_COURS', 'EN_RETARD')) as en_cours, " +
+                "(SELECT COUNT(*) FROM emprunts WHERE statut = 'EN_RETARD') as en_retard, " +
                 "(SELECT COUNT(*) FROM emprunts WHERE statut = 'RETOURNE') as retournes, " +
                 "(SELECT SUM(penalite) FROM emprunts) as total_penalites";
 
@@ -328,6 +808,62 @@ public class EmpruntDAO {
         return emprunt;
     }
 
+    /**
+     * Emprunt sans les colonnes jointes, pour les traitements par lot
+     */
+    private Emprunt extraireEmpruntSimple(ResultSet rs) throws SQLException {
+        Emprunt emprunt = new Emprunt();
+        emprunt.setIdEmprunt(rs.getInt("id_emprunt"));
+        emprunt.setIsbn(rs.getString("isbn"));
+        emprunt.setCne(rs.getString("cne"));
+        emprunt.setDateEmprunt(rs.getTimestamp("date_emprunt"));
+        emprunt.setDateRetourPrevue(rs.getTimestamp("date_retour_prevue"));
+        emprunt.setStatut(rs.getString("statut"));
+        return emprunt;
+    }
+
+    /**
+     * Issue du retour d'un élément d'un lot
+     */
+    public enum IssueRetour {
+        RETOURNE, INTROUVABLE, DEJA_RETOURNE, ERREUR
+    }
+
+    /**
+     * Résultat d'un lot de retours : issue par élément et débit
+     */
+    public static class ResultatRetours {
+        public final List<String> references = new ArrayList<>();
+        public final List<Integer> idsEmprunt = new ArrayList<>();
+        public final List<IssueRetour> issues = new ArrayList<>();
+        public final List<Double> penalites = new ArrayList<>();
+        public long dureeMs;
+
+        void ajouter(String reference, int idEmprunt, IssueRetour issue, double penalite) {
+            references.add(reference);
+            idsEmprunt.add(idEmprunt);
+            issues.add(issue);
+            penalites.add(penalite);
+        }
+
+        public int getNombreRetournes() {
+            return Collections.frequency(issues, IssueRetour.RETOURNE);
+        }
+
+        public double getTotalPenalites() {
+            double total = 0;
+            for (double penalite : penalites) {
+                total += penalite;
+            }
+            return total;
+        }
+
+        // Éléments traités par seconde
+        public double getDebit() {
+            return dureeMs > 0 ? issues.size() * 1000.0 / dureeMs : issues.size();
+        }
+    }
+
     /**
      * Classe interne pour les statistiques
      */
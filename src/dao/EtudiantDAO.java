@@ -3,16 +3,30 @@ package dao;
 
 import DB.DatabaseConnection;
 import models.Etudiant;
+import recherche.IndexEtudiants;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object pour la gestion des étudiants
  */
 public class EtudiantDAO {
 
+    // Durée maximale d'une requête de recherche instantanée
+    private static final int DELAI_RECHERCHE_SECONDES = 5;
+    // Nombre maximal de CNE par requête IN
+    private static final int TAILLE_LOT_CNE = 500;
+
+    // Étudiants avec leur nombre d'emprunts en cours, en une seule requête groupée
+    private static final String SQL_ETUDIANTS_AVEC_EMPRUNTS =
+            "SELECT e.*, COALESCE(em.nb, 0) as nb_emprunts FROM etudiants e " +
+            "LEFT JOIN (SELECT cne, COUNT(*) as nb FROM emprunts " +
+            "WHERE statut IN ('EN_COURS', 'EN_RETARD') GROUP BY cne) em ON em.cne = e.cne ";
+
     /**
      * Ajouter un nouvel étudiant
      */
@@ -30,7 +44,11 @@ public class EtudiantDAO {
             pstmt.setString(5, etudiant.getTelephone());
             pstmt.setString(6, etudiant.getFiliere());
 
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.etudiantAjoute(etudiant));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de l'ajout de l'étudiant: " + e.getMessage());
@@ -56,7 +74,11 @@ public class EtudiantDAO {
             pstmt.setBoolean(6, etudiant.isActif());
             pstmt.setString(7, etudiant.getCne());
 
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.etudiantModifie(etudiant));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la modification de l'étudiant: " + e.getMessage());
@@ -74,7 +96,11 @@ public class EtudiantDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, cne);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.etudiantSupprime(cne));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la suppression de l'étudiant: " + e.getMessage());
@@ -86,13 +112,19 @@ public class EtudiantDAO {
      * Désactiver un étudiant (au lieu de le supprimer)
      */
     public boolean desactiverEtudiant(String cne) {
-        String sql = "UPDATE etudiants SET actif = false WHERE cne = ?";
+        // Condition sur actif : seul un changement réel est notifié
+        String sql = "UPDATE etudiants SET actif = false WHERE cne = ? AND actif = true";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, cne);
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.etudiantDesactive(cne));
+                return true;
+            }
+            // Déjà inactif : considéré comme un succès si l'étudiant existe
+            return getEtudiantParCne(cne) != null;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la désactivation de l'étudiant: " + e.getMessage());
@@ -101,10 +133,13 @@ public class EtudiantDAO {
     }
 
     /**
-     * Récupérer un étudiant par CNE
+     * Récupérer un étudiant par CNE, avec son nombre d'emprunts en cours.
+     * Lu en base : sert à la modification et au détail, qui doivent voir l'état courant.
      */
     public Etudiant getEtudiantParCne(String cne) {
-        String sql = "SELECT * FROM etudiants WHERE cne = ?";
+        String sql = "SELECT e.*, (SELECT COUNT(*) FROM emprunts em " +
+                "WHERE em.cne = e.cne AND em.statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts " +
+                "FROM etudiants e WHERE e.cne = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -113,7 +148,7 @@ public class EtudiantDAO {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return extraireEtudiant(rs);
+                return extraireEtudiantAvecEmprunts(rs);
             }
 
         } catch (SQLException e) {
@@ -126,19 +161,31 @@ public class EtudiantDAO {
      * Récupérer tous les étudiants
      */
     public List<Etudiant> getAllEtudiants() {
+        List<Etudiant> etudiants = chargerEtudiants();
+        return etudiants != null ? etudiants : new ArrayList<>();
+    }
+
+    /**
+     * Tous les étudiants, par nom et prénom ; null en cas d'erreur (rechargement des index)
+     */
+    public List<Etudiant> chargerEtudiants() {
         List<Etudiant> etudiants = new ArrayList<>();
         String sql = "SELECT * FROM etudiants ORDER BY nom, prenom";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                etudiants.add(extraireEtudiant(rs));
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                return null;
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    etudiants.add(extraireEtudiant(rs));
+                }
             }
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la récupération des étudiants: " + e.getMessage());
+            return null;
         }
         return etudiants;
     }
@@ -164,10 +211,226 @@ public class EtudiantDAO {
         return etudiants;
     }
 
+    /**
+     * Récupérer les étudiants avec leur nombre d'emprunts en cours
+     */
+    public List<Etudiant> getEtudiantsAvecEmprunts(boolean actifsSeulement) {
+        List<Etudiant> etudiants = new ArrayList<>();
+        String sql = SQL_ETUDIANTS_AVEC_EMPRUNTS +
+                (actifsSeulement ? "WHERE e.actif = true " : "") +
+                "ORDER BY e.nom, e.prenom";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                etudiants.add(extraireEtudiantAvecEmprunts(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des étudiants: " + e.getMessage());
+        }
+        return etudiants;
+    }
+
+    /**
+     * Récupérer une page d'étudiants triés par nom, prénom (pagination par curseur),
+     * avec leur nombre d'emprunts en cours compté pour la page seulement.
+     * afterNom = null pour la première page, sinon nom, prénom et CNE du dernier étudiant reçu.
+     */
+    public List<Etudiant> getEtudiants(String afterNom, String afterPrenom, String afterCne,
+                                       int limit, boolean actifsSeulement) {
+        List<Etudiant> etudiants = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (actifsSeulement) {
+            conditions.add("e.actif = true");
+        }
+        if (afterNom != null) {
+            conditions.add("(e.nom > ? OR (e.nom = ? AND e.prenom > ?) " +
+                    "OR (e.nom = ? AND e.prenom = ? AND e.cne > ?))");
+        }
+        String sql = "SELECT e.*, (SELECT COUNT(*) FROM emprunts em " +
+                "WHERE em.cne = e.cne AND em.statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts " +
+                "FROM etudiants e " +
+                (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ") +
+                "ORDER BY e.nom, e.prenom, e.cne LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (afterNom != null) {
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterPrenom);
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterPrenom);
+                pstmt.setString(index++, afterCne);
+            }
+            pstmt.setInt(index, limit);
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                etudiants.add(extraireEtudiantAvecEmprunts(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des étudiants: " + e.getMessage());
+        }
+        return etudiants;
+    }
+
+    /**
+     * Rechercher des étudiants avec leur nombre d'emprunts en cours
+     */
+    public List<Etudiant> rechercherEtudiantsAvecEmprunts(String recherche, boolean actifsSeulement) {
+        IndexEtudiants indexEtudiants = IndexEtudiants.getInstance();
+        if (indexEtudiants.estPret()) {
+            return getEtudiantsParCnes(indexEtudiants.rechercher(recherche, actifsSeulement,
+                    null, null, null, Integer.MAX_VALUE));
+        }
+
+        List<Etudiant> etudiants = new ArrayList<>();
+        String sql = SQL_ETUDIANTS_AVEC_EMPRUNTS +
+                "WHERE (e.nom LIKE ? OR e.prenom LIKE ? OR e.cne LIKE ? " +
+                "OR e.email LIKE ? OR e.filiere LIKE ?) " +
+                (actifsSeulement ? "AND e.actif = true " : "") +
+                "ORDER BY e.nom, e.prenom";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            String pattern = "%" + recherche + "%";
+            for (int i = 1; i <= 5; i++) {
+                pstmt.setString(i, pattern);
+            }
+
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                etudiants.add(extraireEtudiantAvecEmprunts(rs));
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la recherche d'étudiants: " + e.getMessage());
+        }
+        return etudiants;
+    }
+
+    /**
+     * Rechercher une page d'étudiants triés par nom, prénom (recherche instantanée).
+     * afterNom = null pour la première page ; le jeton permet d'interrompre la requête.
+     * L'index de trigrammes est utilisé dès qu'il est construit.
+     */
+    public List<Etudiant> rechercherEtudiants(String recherche, boolean actifsSeulement,
+                                              String afterNom, String afterPrenom, String afterCne,
+                                              int limit, JetonAnnulation jeton) {
+        IndexEtudiants indexEtudiants = IndexEtudiants.getInstance();
+        if (indexEtudiants.estPret()) {
+            List<String> cnes = indexEtudiants.rechercher(recherche, actifsSeulement,
+                    afterNom, afterPrenom, afterCne, limit);
+            return jeton.estAnnule() ? new ArrayList<>() : getEtudiantsParCnes(cnes);
+        }
+
+        List<Etudiant> etudiants = new ArrayList<>();
+        String sql = "SELECT e.*, (SELECT COUNT(*) FROM emprunts em " +
+                "WHERE em.cne = e.cne AND em.statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts " +
+                "FROM etudiants e " +
+                "WHERE (e.nom LIKE ? OR e.prenom LIKE ? OR e.cne LIKE ? " +
+                "OR e.email LIKE ? OR e.filiere LIKE ?) " +
+                (actifsSeulement ? "AND e.actif = true " : "") +
+                (afterNom != null ? "AND (e.nom > ? OR (e.nom = ? AND e.prenom > ?) " +
+                        "OR (e.nom = ? AND e.prenom = ? AND e.cne > ?)) " : "") +
+                "ORDER BY e.nom, e.prenom, e.cne LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            String pattern = "%" + recherche + "%";
+            int index = 1;
+            for (int i = 0; i < 5; i++) {
+                pstmt.setString(index++, pattern);
+            }
+            if (afterNom != null) {
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterPrenom);
+                pstmt.setString(index++, afterNom);
+                pstmt.setString(index++, afterPrenom);
+                pstmt.setString(index++, afterCne);
+            }
+            pstmt.setInt(index, limit);
+            pstmt.setQueryTimeout(DELAI_RECHERCHE_SECONDES);
+
+            if (!jeton.attacher(pstmt)) {
+                return etudiants;
+            }
+            try {
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    etudiants.add(extraireEtudiantAvecEmprunts(rs));
+                }
+            } finally {
+                jeton.detacher();
+            }
+
+        } catch (SQLException e) {
+            if (jeton.estAnnule()) {
+                return new ArrayList<>();
+            }
+            System.err.println("Erreur lors de la recherche d'étudiants: " + e.getMessage());
+        }
+        return etudiants;
+    }
+
+    /**
+     * Récupérer des étudiants avec leur nombre d'emprunts en cours, dans l'ordre des CNE donnés
+     */
+    public List<Etudiant> getEtudiantsParCnes(List<String> cnes) {
+        Map<String, Etudiant> parCne = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int debut = 0; debut < cnes.size(); debut += TAILLE_LOT_CNE) {
+                List<String> lot = cnes.subList(debut, Math.min(debut + TAILLE_LOT_CNE, cnes.size()));
+                String sql = "SELECT e.*, (SELECT COUNT(*) FROM emprunts em " +
+                        "WHERE em.cne = e.cne AND em.statut IN ('EN_COURS', 'EN_RETARD')) as nb_emprunts " +
+                        "FROM etudiants e WHERE e.cne IN (" + ListeIn.marqueurs(lot.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ListeIn.lierChaines(pstmt, lot);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        Etudiant etudiant = extraireEtudiantAvecEmprunts(rs);
+                        parCne.put(etudiant.getCne(), etudiant);
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des étudiants: " + e.getMessage());
+        }
+
+        List<Etudiant> etudiants = new ArrayList<>();
+        for (String cne : cnes) {
+            Etudiant etudiant = parCne.get(cne);
+            if (etudiant != null) {
+                etudiants.add(etudiant);
+            }
+        }
+        return etudiants;
+    }
+
     /**
      * Rechercher des étudiants
      */
     public List<Etudiant> rechercherEtudiants(String recherche) {
+        IndexEtudiants indexEtudiants = IndexEtudiants.getInstance();
+        if (indexEtudiants.estPret()) {
+            return getEtudiantsParCnes(indexEtudiants.rechercher(recherche, false,
+                    null, null, null, Integer.MAX_VALUE));
+        }
+
         List<Etudiant> etudiants = new ArrayList<>();
         String sql = "SELECT * FROM etudiants WHERE nom LIKE ? OR prenom LIKE ? " +
                 "OR cne LIKE ? OR email LIKE ? OR filiere LIKE ? " +
@@ -218,50 +481,42 @@ public class EtudiantDAO {
     }
 
     /**
-     * Vérifier si un étudiant peut emprunter (pas trop d'emprunts en cours)
+     * Vérifier si un étudiant peut emprunter (pas trop d'emprunts en cours), lu en mémoire
      */
     public boolean peutEmprunter(String cne, int maxEmprunts) {
-        String sql = "SELECT COUNT(*) as nb FROM emprunts " +
-                "WHERE cne = ? AND statut = 'EN_COURS'";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, cne);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                int nbEmprunts = rs.getInt("nb");
-                return nbEmprunts < maxEmprunts;
-            }
-
-        } catch (SQLException e) {
-            System.err.println("Erreur lors de la vérification des emprunts: " + e.getMessage());
-        }
-        return false;
+        return getNombreEmpruntsEnCours(cne) < maxEmprunts;
     }
 
     /**
-     * Obtenir le nombre d'emprunts en cours pour un étudiant
+     * Obtenir le nombre d'emprunts en cours pour un étudiant, lu en mémoire
      */
     public int getNombreEmpruntsEnCours(String cne) {
-        String sql = "SELECT COUNT(*) as nb FROM emprunts " +
-                "WHERE cne = ? AND statut = 'EN_COURS'";
+        CacheEtudiants.Fiche fiche = CacheEtudiants.getInstance().obtenir(cne, this::getEtudiantParCne);
+        return fiche != null ? fiche.empruntsEnCours.get() : 0;
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Nombre d'emprunts en cours par CNE (étudiants sans emprunt absents) ;
+     * null en cas d'erreur
+     */
+    Map<String, Integer> compterEmpruntsEnCours() {
+        String sql = "SELECT cne, COUNT(*) as nb FROM emprunts " +
+                "WHERE statut IN ('EN_COURS', 'EN_RETARD') GROUP BY cne";
+        Map<String, Integer> nombres = new HashMap<>();
 
-            pstmt.setString(1, cne);
-            ResultSet rs = pstmt.executeQuery();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
 
-            if (rs.next()) {
-                return rs.getInt("nb");
+            while (rs.next()) {
+                nombres.put(rs.getString("cne"), rs.getInt("nb"));
             }
+            return nombres;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors du comptage des emprunts: " + e.getMessage());
+            return null;
         }
-        return 0;
     }
 
     /**
@@ -279,4 +534,10 @@ public class EtudiantDAO {
         etudiant.setActif(rs.getBoolean("actif"));
         return etudiant;
     }
+
+    private Etudiant extraireEtudiantAvecEmprunts(ResultSet rs) throws SQLException {
+        Etudiant etudiant = extraireEtudiant(rs);
+        etudiant.setNombreEmpruntsEnCours(rs.getInt("nb_emprunts"));
+        return etudiant;
+    }
 }
\ No newline at end of file
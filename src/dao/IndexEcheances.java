@@ -0,0 +1,282 @@
+package dao;
+
+import DB.DatabaseConnection;
+import models.Emprunt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Emprunts actifs en mémoire, classés par jour de retour prévu.
+ *
+ * Les emprunts sont rangés par jour (même granularité que CURDATE() dans les
+ * requêtes) ; un arbre de Fenwick sur les jours donne en O(log n) le nombre
+ * d'emprunts échus avant une date, donc les retards et les échéances proches
+ * sans requête. Tenu à jour par les notifications de création et de retour
+ * d'emprunt, et rechargé périodiquement depuis la base pour les emprunts
+ * créés ou rendus ailleurs (autre poste, hors de l'application).
+ *
+ * Pendant un chargement, les notifications reçues sont appliquées et aussi
+ * notées, puis rejouées sur le résultat de la requête : une écriture faite
+ * pendant la lecture n'est pas perdue.
+ *
+ * Les emprunts notifiés n'ont ni titre ni nom d'étudiant ; l'affichage les
+ * complète.
+ */
+public class IndexEcheances implements EcouteurDAO {
+
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+
+    private static final IndexEcheances instance = new IndexEcheances();
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Emprunt> parId = new HashMap<>();
+    private final TreeMap<Long, TreeMap<Integer, Emprunt>> parJour = new TreeMap<>();
+
+    // Nombre d'emprunts par jour : arbre[i] couvre des jours à partir de « origine »
+    private long origine = 0;
+    private int[] arbre = new int[1];
+
+    // Notifications reçues pendant un chargement, à rejouer
+    private final JournalNotifications journal = new JournalNotifications();
+
+    private volatile boolean pret = false;
+    private boolean demarre = false;
+
+    private final EmpruntDAO empruntDAO = new EmpruntDAO();
+
+    private IndexEcheances() {}
+
+    public static IndexEcheances getInstance() {
+        return instance;
+    }
+
+    /**
+     * Charger les emprunts actifs et démarrer le rechargement périodique.
+     * L'écouteur est enregistré avant la lecture. Faux si la base n'a pas répondu.
+     */
+    public synchronized boolean construire() {
+        if (!demarre) {
+            NotificationsDAO.ajouterEcouteur(this);
+            DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                    PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+            demarre = true;
+        }
+        return reconcilier();
+    }
+
+    /**
+     * Remplacer le contenu de l'index par les emprunts actifs en base
+     */
+    public synchronized boolean reconcilier() {
+        verrou.writeLock().lock();
+        try {
+            journal.ouvrir();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        List<Emprunt> actifs = empruntDAO.chargerEmpruntsEnCours();
+
+        verrou.writeLock().lock();
+        try {
+            if (actifs == null) {
+                journal.abandonner();
+                return false;
+            }
+
+            parId.clear();
+            parJour.clear();
+            for (Emprunt emprunt : actifs) {
+                ranger(emprunt);
+            }
+            journal.rejouer();
+            long aujourdhui = Emprunt.aujourdhui();
+            reconstruireArbre(parJour.isEmpty() ? aujourdhui : Math.min(parJour.firstKey(), aujourdhui));
+            pret = true;
+            return true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public boolean estPret() {
+        return pret;
+    }
+
+    public int getNombreEmpruntsActifs() {
+        verrou.readLock().lock();
+        try {
+            return parId.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nombre d'emprunts dont la date de retour prévue est passée
+     */
+    public int compterEnRetard() {
+        long aujourdhui = Emprunt.aujourdhui();
+        verrou.readLock().lock();
+        try {
+            return compterAvant(aujourdhui);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nombre d'emprunts à rendre dans les {@code jours} prochains jours (aujourd'hui compris)
+     */
+    public int compterEcheancesProches(int jours) {
+        long aujourdhui = Emprunt.aujourdhui();
+        verrou.readLock().lock();
+        try {
+            return compterAvant(aujourdhui + jours) - compterAvant(aujourdhui);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Emprunts en retard, du plus ancien au plus récent
+     */
+    public List<Emprunt> getEnRetard() {
+        long aujourdhui = Emprunt.aujourdhui();
+        verrou.readLock().lock();
+        try {
+            return copier(parJour.headMap(aujourdhui, false), "EN_RETARD");
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Emprunts à rendre dans les {@code jours} prochains jours, par date de retour prévue
+     */
+    public List<Emprunt> getEcheancesProches(int jours) {
+        long aujourdhui = Emprunt.aujourdhui();
+        verrou.readLock().lock();
+        try {
+            return copier(parJour.subMap(aujourdhui, true, aujourdhui + jours, false), null);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Copies, pour que l'appelant ne voie pas les mises à jour suivantes
+    private static List<Emprunt> copier(Map<Long, TreeMap<Integer, Emprunt>> jours, String statut) {
+        List<Emprunt> resultat = new ArrayList<>();
+        for (TreeMap<Integer, Emprunt> emprunts : jours.values()) {
+            for (Emprunt emprunt : emprunts.values()) {
+                Emprunt copie = new Emprunt(emprunt);
+                if (statut != null) {
+                    copie.setStatut(statut);
+                }
+                resultat.add(copie);
+            }
+        }
+        return resultat;
+    }
+
+    // Arbre de Fenwick, manipulé sous le verrou
+
+    private int compterAvant(long jourExclu) {
+        long position = Math.min(jourExclu - origine, arbre.length);
+        int somme = 0;
+        for (int i = (int) Math.max(position, 0); i > 0; i -= i & -i) {
+            somme += arbre[i - 1];
+        }
+        return somme;
+    }
+
+    private void ajouterAuCompte(long jour, int delta) {
+        if (jour < origine || jour - origine >= arbre.length) {
+            // Jour hors de la plage couverte : agrandir (le comptage vient de parJour)
+            long nouvelleOrigine = Math.min(origine, jour);
+            reconstruireArbre(nouvelleOrigine);
+            return;
+        }
+        for (int i = (int) (jour - origine) + 1; i <= arbre.length; i += i & -i) {
+            arbre[i - 1] += delta;
+        }
+    }
+
+    private void reconstruireArbre(long nouvelleOrigine) {
+        long dernier = parJour.isEmpty() ? nouvelleOrigine : Math.max(parJour.lastKey(), nouvelleOrigine);
+        int taille = Integer.highestOneBit((int) Math.max(dernier - nouvelleOrigine + 1, 1)) * 2;
+        origine = nouvelleOrigine;
+        arbre = new int[taille];
+        Arrays.fill(arbre, 0);
+        for (Map.Entry<Long, TreeMap<Integer, Emprunt>> entree : parJour.entrySet()) {
+            for (int i = (int) (entree.getKey() - origine) + 1; i <= taille; i += i & -i) {
+                arbre[i - 1] += entree.getValue().size();
+            }
+        }
+    }
+
+    // Mise à jour, appelée sous le verrou d'écriture
+
+    private boolean ranger(Emprunt emprunt) {
+        if (parId.putIfAbsent(emprunt.getIdEmprunt(), emprunt) != null) {
+            return false;
+        }
+        parJour.computeIfAbsent(emprunt.getJourRetourPrevu(), j -> new TreeMap<>())
+                .put(emprunt.getIdEmprunt(), emprunt);
+        return true;
+    }
+
+    // Écouteur des DAO
+
+    private Emprunt retirer(int idEmprunt) {
+        Emprunt retire = parId.remove(idEmprunt);
+        if (retire == null) {
+            return null;
+        }
+        TreeMap<Integer, Emprunt> emprunts = parJour.get(retire.getJourRetourPrevu());
+        emprunts.remove(idEmprunt);
+        if (emprunts.isEmpty()) {
+            parJour.remove(retire.getJourRetourPrevu());
+        }
+        return retire;
+    }
+
+    private void appliquer(Runnable notification) {
+        verrou.writeLock().lock();
+        try {
+            journal.appliquer(notification);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void empruntCree(Emprunt emprunt) {
+        Emprunt copie = new Emprunt(emprunt);
+        appliquer(() -> {
+            if (ranger(copie)) {
+                ajouterAuCompte(copie.getJourRetourPrevu(), 1);
+            }
+        });
+    }
+
+    @Override
+    public void livreRetourne(Emprunt emprunt) {
+        int idEmprunt = emprunt.getIdEmprunt();
+        appliquer(() -> {
+            Emprunt retire = retirer(idEmprunt);
+            if (retire != null) {
+                ajouterAuCompte(retire.getJourRetourPrevu(), -1);
+            }
+        });
+    }
+}
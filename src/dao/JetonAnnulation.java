@@ -0,0 +1,52 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permet d'interrompre depuis un autre thread la requête d'une recherche
+ * devenue inutile (saisie modifiée entre-temps).
+ *
+ * Le DAO attache son statement le temps de l'exécution ; annuler() le
+ * signale au serveur par Statement.cancel().
+ */
+public class JetonAnnulation {
+
+    private volatile boolean annule = false;
+    private Statement statement;
+
+    // Synchronisé avec detacher() : le statement ne peut pas être rendu au
+    // pool et réutilisé par une autre requête pendant son annulation
+    public synchronized void annuler() {
+        annule = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // la requête est peut-être déjà terminée
+            }
+        }
+    }
+
+    public boolean estAnnule() {
+        return annule;
+    }
+
+    /**
+     * Attacher le statement sur le point d'être exécuté ; faux si déjà annulé
+     */
+    synchronized boolean attacher(Statement statement) {
+        if (annule) {
+            return false;
+        }
+        this.statement = statement;
+        return true;
+    }
+
+    /**
+     * Détacher le statement avant qu'il ne soit rendu au pool
+     */
+    synchronized void detacher() {
+        statement = null;
+    }
+}
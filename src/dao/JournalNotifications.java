@@ -0,0 +1,64 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Notifications reçues pendant un chargement depuis la base, rejouées sur son
+ * résultat.
+ *
+ * Le propriétaire (cache ou index tenu à jour par les notifications des DAO)
+ * ouvre le journal avant de lire la base. Chaque notification est appliquée
+ * au contenu courant et, tant que le journal est ouvert, notée ; une fois la
+ * lecture remplacée dans le contenu, le journal est rejoué : une écriture
+ * faite pendant la lecture n'est pas perdue. Les notifications passent donc
+ * deux fois et doivent être idempotentes.
+ *
+ * Pas de synchronisation propre : toutes les méthodes s'appellent sous le
+ * verrou d'écriture du propriétaire.
+ */
+public class JournalNotifications {
+
+    private List<Runnable> notifications = null;
+
+    /**
+     * Commencer à noter les notifications (avant la lecture en base)
+     */
+    public void ouvrir() {
+        notifications = new ArrayList<>();
+    }
+
+    public boolean estOuvert() {
+        return notifications != null;
+    }
+
+    /**
+     * Appliquer la notification, et la noter si le journal est ouvert
+     */
+    public void appliquer(Runnable notification) {
+        notification.run();
+        if (notifications != null) {
+            notifications.add(notification);
+        }
+    }
+
+    /**
+     * Rejouer les notifications notées, sur le contenu rechargé, et fermer le journal
+     */
+    public void rejouer() {
+        List<Runnable> aRejouer = notifications;
+        notifications = null;
+        if (aRejouer != null) {
+            for (Runnable notification : aRejouer) {
+                notification.run();
+            }
+        }
+    }
+
+    /**
+     * Fermer le journal sans rejouer (lecture échouée : le contenu courant reste)
+     */
+    public void abandonner() {
+        notifications = null;
+    }
+}
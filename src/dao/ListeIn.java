@@ -0,0 +1,58 @@
+package dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Paramètres des requêtes « IN (?, ?, ...) ».
+ *
+ * Le nombre de marqueurs est arrondi au palier supérieur et les places en
+ * trop répètent la dernière valeur, ce qui ne change pas le résultat. Une
+ * requête n'a ainsi que quelques textes SQL possibles, au lieu d'un par
+ * longueur de liste dans le cache de statements de la connexion.
+ *
+ * Une liste vide est refusée : « IN () » n'est pas du SQL valide, l'appelant
+ * doit se passer de la requête.
+ */
+final class ListeIn {
+
+    // Le dernier palier couvre les plus grands lots des DAO (500)
+    private static final int[] PALIERS = {1, 4, 16, 64, 256, 512};
+
+    private ListeIn() {}
+
+    /**
+     * Marqueurs pour une liste de {@code nombre} valeurs, arrondie au palier supérieur
+     */
+    static String marqueurs(int nombre) {
+        return String.join(", ", Collections.nCopies(taille(nombre), "?"));
+    }
+
+    static void lierChaines(PreparedStatement pstmt, List<String> valeurs) throws SQLException {
+        int taille = taille(valeurs.size());
+        for (int i = 0; i < taille; i++) {
+            pstmt.setString(i + 1, valeurs.get(Math.min(i, valeurs.size() - 1)));
+        }
+    }
+
+    static void lierEntiers(PreparedStatement pstmt, List<Integer> valeurs) throws SQLException {
+        int taille = taille(valeurs.size());
+        for (int i = 0; i < taille; i++) {
+            pstmt.setInt(i + 1, valeurs.get(Math.min(i, valeurs.size() - 1)));
+        }
+    }
+
+    private static int taille(int nombre) {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("Liste IN vide : requête à éviter par l'appelant");
+        }
+        for (int palier : PALIERS) {
+            if (nombre <= palier) {
+                return palier;
+            }
+        }
+        return nombre;
+    }
+}
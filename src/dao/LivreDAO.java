@@ -3,12 +3,21 @@ package dao;
 
 import DB.DatabaseConnection;
 import models.Livre;
+import recherche.IndexLivres;
+
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class LivreDAO {
 
+    // Durée maximale d'une requête de recherche instantanée
+    private static final int DELAI_RECHERCHE_SECONDES = 5;
+    // Nombre maximal d'ISBN par requête IN
+    private static final int TAILLE_LOT_ISBN = 500;
+
     // Ajouter un livre
     public boolean ajouterLivre(Livre livre) {
         String sql = "INSERT INTO livres (isbn, titre, auteur, id_categorie, " +
@@ -27,7 +36,11 @@ public class LivreDAO {
             pstmt.setInt(7, livre.getExemplairesDisponibles());
 
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.livreAjoute(livre));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de l'ajout du livre: " + e.getMessage());
@@ -54,7 +67,11 @@ public class LivreDAO {
             pstmt.setString(7, livre.getIsbn());
 
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.livreModifie(livre));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la modification du livre: " + e.getMessage());
@@ -72,7 +89,11 @@ public class LivreDAO {
 
             pstmt.setString(1, isbn);
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.livreSupprime(isbn));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la suppression du livre: " + e.getMessage());
@@ -81,12 +102,16 @@ public class LivreDAO {
         }
     }
 
-    // Récupérer un livre par ISBN
+    // Récupérer un livre par ISBN (via le cache)
     public Livre getLivreParIsbn(String isbn) {
-        String sql = "SELECT l.*, c.nom_categorie FROM livres l " +
-                "LEFT JOIN categories c ON l.id_categorie = c.id_categorie " +
+        return CacheLivres.getInstance().obtenir(isbn, this::chargerLivreParIsbn);
+    }
+
+    private Livre chargerLivreParIsbn(String isbn) {
+        String sql = "SELECT l.* FROM livres l " +
                 "WHERE l.isbn = ?";
 
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -106,15 +131,58 @@ public class LivreDAO {
 
     // Récupérer tous les livres
     public List<Livre> getAllLivres() {
+        List<Livre> livres = chargerLivres();
+        return livres != null ? livres : new ArrayList<>();
+    }
+
+    // Tous les livres, par titre ; null en cas d'erreur (rechargement des index)
+    public List<Livre> chargerLivres() {
         List<Livre> livres = new ArrayList<>();
-        String sql = "SELECT l.*, c.nom_categorie FROM livres l " +
-                "LEFT JOIN categories c ON l.id_categorie = c.id_categorie " +
+        String sql = "SELECT l.* FROM livres l " +
                 "ORDER BY l.titre";
 
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                return null;
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    livres.add(extraireLivre(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des livres: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        return livres;
+    }
+
+    // Récupérer une page de livres triés par titre (pagination par curseur).
+    // afterTitre = null pour la première page, sinon titre et ISBN du dernier livre reçu.
+    public List<Livre> getLivres(String afterTitre, String afterIsbn, int limit) {
+        List<Livre> livres = new ArrayList<>();
+        String sql = "SELECT l.* FROM livres l " +
+                (afterTitre != null
+                        ? "WHERE (l.titre > ? OR (l.titre = ? AND l.isbn > ?)) " : "") +
+                "ORDER BY l.titre, l.isbn LIMIT ?";
+
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            int index = 1;
+            if (afterTitre != null) {
+                pstmt.setString(index++, afterTitre);
+                pstmt.setString(index++, afterTitre);
+                pstmt.setString(index++, afterIsbn);
+            }
+            pstmt.setInt(index, limit);
+
+            ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
                 livres.add(extraireLivre(rs));
             }
@@ -126,14 +194,55 @@ public class LivreDAO {
         return livres;
     }
 
-    // Rechercher des livres
+    // Récupérer des livres par ISBN, dans l'ordre de la liste donnée
+    public List<Livre> getLivresParIsbns(List<String> isbns) {
+        Map<String, Livre> parIsbn = new HashMap<>();
+
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int debut = 0; debut < isbns.size(); debut += TAILLE_LOT_ISBN) {
+                List<String> lot = isbns.subList(debut, Math.min(debut + TAILLE_LOT_ISBN, isbns.size()));
+                String sql = "SELECT l.* FROM livres l " +
+                        "WHERE l.isbn IN (" + ListeIn.marqueurs(lot.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    ListeIn.lierChaines(pstmt, lot);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next()) {
+                        Livre livre = extraireLivre(rs);
+                        parIsbn.put(livre.getIsbn(), livre);
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la récupération des livres: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        List<Livre> livres = new ArrayList<>();
+        for (String isbn : isbns) {
+            Livre livre = parIsbn.get(isbn);
+            if (livre != null) {
+                livres.add(livre);
+            }
+        }
+        return livres;
+    }
+
+    // Rechercher des livres (par l'index en mémoire dès qu'il est construit)
     public List<Livre> rechercherLivres(String recherche) {
+        IndexLivres indexLivres = IndexLivres.getInstance();
+        if (indexLivres.estPret()) {
+            return getLivresParIsbns(indexLivres.rechercher(recherche, null, Integer.MAX_VALUE));
+        }
+
         List<Livre> livres = new ArrayList<>();
-        String sql = "SELECT l.*, c.nom_categorie FROM livres l " +
-                "LEFT JOIN categories c ON l.id_categorie = c.id_categorie " +
+        String sql = "SELECT l.* FROM livres l " +
                 "WHERE l.titre LIKE ? OR l.auteur LIKE ? OR l.isbn LIKE ? " +
                 "ORDER BY l.titre";
 
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -155,13 +264,70 @@ public class LivreDAO {
         return livres;
     }
 
+    // Rechercher une page de livres (recherche instantanée).
+    // Avec l'index en mémoire, les livres sont classés par pertinence et seul afterIsbn
+    // sert de curseur ; sinon requête LIKE triée par titre, interruptible par le jeton.
+    // afterTitre = null pour la première page.
+    public List<Livre> rechercherLivres(String recherche, String afterTitre, String afterIsbn,
+                                        int limit, JetonAnnulation jeton) {
+        IndexLivres indexLivres = IndexLivres.getInstance();
+        if (indexLivres.estPret()) {
+            List<String> isbns = indexLivres.rechercher(recherche, afterTitre != null ? afterIsbn : null, limit);
+            return jeton.estAnnule() ? new ArrayList<>() : getLivresParIsbns(isbns);
+        }
+
+        List<Livre> livres = new ArrayList<>();
+        String sql = "SELECT l.* FROM livres l " +
+                "WHERE (l.titre LIKE ? OR l.auteur LIKE ? OR l.isbn LIKE ?) " +
+                (afterTitre != null
+                        ? "AND (l.titre > ? OR (l.titre = ? AND l.isbn > ?)) " : "") +
+                "ORDER BY l.titre, l.isbn LIMIT ?";
+
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            String pattern = "%" + recherche + "%";
+            int index = 1;
+            pstmt.setString(index++, pattern);
+            pstmt.setString(index++, pattern);
+            pstmt.setString(index++, pattern);
+            if (afterTitre != null) {
+                pstmt.setString(index++, afterTitre);
+                pstmt.setString(index++, afterTitre);
+                pstmt.setString(index++, afterIsbn);
+            }
+            pstmt.setInt(index, limit);
+            pstmt.setQueryTimeout(DELAI_RECHERCHE_SECONDES);
+
+            if (!jeton.attacher(pstmt)) {
+                return livres;
+            }
+            try {
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    livres.add(extraireLivre(rs));
+                }
+            } finally {
+                jeton.detacher();
+            }
+
+        } catch (SQLException e) {
+            if (jeton.estAnnule()) {
+                return new ArrayList<>();
+            }
+            System.err.println("Erreur lors de la recherche des livres: " + e.getMessage());
+        }
+        return livres;
+    }
+
     // Récupérer les livres par catégorie
     public List<Livre> getLivresParCategorie(int idCategorie) {
         List<Livre> livres = new ArrayList<>();
-        String sql = "SELECT l.*, c.nom_categorie FROM livres l " +
-                "LEFT JOIN categories c ON l.id_categorie = c.id_categorie " +
+        String sql = "SELECT l.* FROM livres l " +
                 "WHERE l.id_categorie = ? ORDER BY l.titre";
 
+        DictionnaireCategories.getInstance().chargerSiNecessaire();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
@@ -191,7 +357,11 @@ public class LivreDAO {
             pstmt.setString(2, isbn);
 
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            if (rowsAffected > 0) {
+                NotificationsDAO.notifier(ecouteur -> ecouteur.disponibiliteModifiee(isbn, changement));
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             System.err.println("Erreur lors de la mise à jour de la disponibilité: " + e.getMessage());
@@ -207,7 +377,9 @@ public class LivreDAO {
         livre.setTitre(rs.getString("titre"));
         livre.setAuteur(rs.getString("auteur"));
         livre.setIdCategorie(rs.getInt("id_categorie"));
-        livre.setNomCategorie(rs.getString("nom_categorie"));
+        // Nom résolu en mémoire plutôt que par jointure sur categories ; le dictionnaire
+        // est chargé par l'appelant avant d'ouvrir la connexion, jamais pendant la lecture
+        livre.setNomCategorie(DictionnaireCategories.getInstance().getNomCharge(livre.getIdCategorie()));
         livre.setAnneePublication(rs.getInt("annee_publication"));
         livre.setNombreExemplaires(rs.getInt("nombre_exemplaires"));
         livre.setExemplairesDisponibles(rs.getInt("exemplaires_disponibles"));
@@ -0,0 +1,40 @@
+package dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Diffusion des modifications des DAO vers les écouteurs enregistrés
+ * (compteurs, caches, index en mémoire)
+ */
+public final class NotificationsDAO {
+
+    private static final List<EcouteurDAO> ecouteurs = new CopyOnWriteArrayList<>();
+
+    private NotificationsDAO() {}
+
+    public static void ajouterEcouteur(EcouteurDAO ecouteur) {
+        if (!ecouteurs.contains(ecouteur)) {
+            ecouteurs.add(ecouteur);
+        }
+    }
+
+    public static void retirerEcouteur(EcouteurDAO ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+
+    /**
+     * Notifier tous les écouteurs ; l'erreur d'un écouteur n'empêche pas les autres
+     */
+    static void notifier(Consumer<EcouteurDAO> evenement) {
+        for (EcouteurDAO ecouteur : ecouteurs) {
+            try {
+                evenement.accept(ecouteur);
+            } catch (RuntimeException e) {
+                System.err.println("Erreur dans un écouteur DAO: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+}
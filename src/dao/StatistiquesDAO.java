@@ -0,0 +1,79 @@
+package dao;
+
+import DB.DatabaseConnection;
+
+import java.sql.*;
+
+/**
+ * Data Access Object pour les statistiques du tableau de bord
+ */
+public class StatistiquesDAO {
+
+    /**
+     * Calculer tous les chiffres du tableau de bord en une seule requête d'agrégation ;
+     * null en cas d'erreur
+     */
+    public StatistiquesBibliotheque getStatistiques() {
+        StatistiquesBibliotheque stats = new StatistiquesBibliotheque();
+
+        String sql = "SELECT l.total_exemplaires, l.exemplaires_disponibles, " +
+                "et.total_etudiants, et.etudiants_actifs, " +
+                "em.en_cours, em.en_retard, em.retournes, em.total_penalites " +
+                "FROM (SELECT COALESCE(SUM(nombre_exemplaires), 0) as total_exemplaires, " +
+                "COALESCE(SUM(exemplaires_disponibles), 0) as exemplaires_disponibles " +
+                "FROM livres) l " +
+                "CROSS JOIN (SELECT COUNT(*) as total_etudiants, " +
+                "COALESCE(SUM(actif = true), 0) as etudiants_actifs FROM etudiants) et " +
+                "CROSS JOIN (SELECT COALESCE(SUM(statut IN ('EN_COURS', 'EN_RETARD')), 0) as en_cours, " +
+                "COALESCE(SUM(statut = 'EN_RETARD'), 0) as en_retard, " +
+                "COALESCE(SUM(statut = 'RETOURNE'), 0) as retournes, " +
+                "COALESCE(SUM(penalite), 0) as total_penalites FROM emprunts) em";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                return null;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+
+                if (!rs.next()) {
+                    return null;
+                }
+                stats.totalExemplaires = rs.getInt("total_exemplaires");
+                stats.exemplairesDisponibles = rs.getInt("exemplaires_disponibles");
+                stats.totalEtudiants = rs.getInt("total_etudiants");
+                stats.etudiantsActifs = rs.getInt("etudiants_actifs");
+                stats.empruntsEnCours = rs.getInt("en_cours");
+                stats.empruntsEnRetard = rs.getInt("en_retard");
+                stats.empruntsRetournes = rs.getInt("retournes");
+                stats.totalPenalites = rs.getDouble("total_penalites");
+            }
+
+        } catch (SQLException e) {
+            System.err.println("Erreur lors du calcul des statistiques: " + e.getMessage());
+            return null;
+        }
+
+        return stats;
+    }
+
+    /**
+     * Classe interne pour les statistiques du tableau de bord
+     */
+    public static class StatistiquesBibliotheque {
+        public int totalExemplaires;
+        public int exemplairesDisponibles;
+        public int totalEtudiants;
+        public int etudiantsActifs;
+        public int empruntsEnCours;
+        public int empruntsEnRetard;
+        public int empruntsRetournes;
+        // Renseigné depuis l'index des échéances seulement (0 sinon)
+        public int empruntsAEcheanceProche;
+        public double totalPenalites;
+
+        public int getExemplairesEmpruntes() {
+            return totalExemplaires - exemplairesDisponibles;
+        }
+    }
+}
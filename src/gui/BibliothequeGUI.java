@@ -1,8 +1,26 @@
 package gui;
 
 import DB.DatabaseConnection;
+import analyse.AnalyseEmprunts;
+import dao.BalayageRetards;
+import dao.CacheEtudiants;
+import dao.CompteursStatistiques;
+import dao.DictionnaireCategories;
+import dao.EtudiantDAO;
+import dao.IndexEcheances;
+import dao.LivreDAO;
+import models.Etudiant;
+import models.Livre;
+import recherche.AutocompletionEmprunt;
+import recherche.IndexEtudiants;
+import recherche.IndexLivres;
+
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Interface graphique principale de l'application de gestion de bibliothèque
@@ -12,15 +30,17 @@ public class BibliothequeGUI extends JFrame {
     private JPanel mainPanel;
     private CardLayout cardLayout;
 
-    // Panels pour chaque section
+    // Panels pour chaque section, construits à la première navigation
     private GestionLivresPanel livresPanel;
     private GestionEtudiantsPanel etudiantsPanel;
     private GestionEmpruntsPanel empruntsPanel;
     private StatistiquesPanel statistiquesPanel;
 
+    // Indicateur des chargements en arrière-plan
+    private JProgressBar chargementBar;
+
     public BibliothequeGUI() {
         initializeGUI();
-        testDatabaseConnection();
     }
 
     private void initializeGUI() {
@@ -43,21 +63,17 @@ public class BibliothequeGUI extends JFrame {
         cardLayout = new CardLayout();
         mainPanel = new JPanel(cardLayout);
 
-        // Initialisation des panels
-        livresPanel = new GestionLivresPanel();
-        etudiantsPanel = new GestionEtudiantsPanel();
-        empruntsPanel = new GestionEmpruntsPanel();
-        statistiquesPanel = new StatistiquesPanel();
-
-        // Ajout des panels au CardLayout
+        // Seul l'accueil est construit au démarrage
         mainPanel.add(createAccueilPanel(), "accueil");
-        mainPanel.add(livresPanel, "livres");
-        mainPanel.add(etudiantsPanel, "etudiants");
-        mainPanel.add(empruntsPanel, "emprunts");
-        mainPanel.add(statistiquesPanel, "statistiques");
 
         add(mainPanel, BorderLayout.CENTER);
 
+        // Barre d'état : visible pendant les chargements
+        chargementBar = new JProgressBar();
+        chargementBar.setStringPainted(true);
+        ChargeurArrierePlan.setIndicateur(chargementBar);
+        add(chargementBar, BorderLayout.SOUTH);
+
         // Afficher le panel d'accueil par défaut
         cardLayout.show(mainPanel, "accueil");
     }
@@ -88,9 +104,9 @@ public class BibliothequeGUI extends JFrame {
         JMenuItem etudiantsItem = new JMenuItem("Étudiants");
         JMenuItem empruntsItem = new JMenuItem("Emprunts");
 
-        livresItem.addActionListener(e -> cardLayout.show(mainPanel, "livres"));
-        etudiantsItem.addActionListener(e -> cardLayout.show(mainPanel, "etudiants"));
-        empruntsItem.addActionListener(e -> cardLayout.show(mainPanel, "emprunts"));
+        livresItem.addActionListener(e -> afficherPanel("livres"));
+        etudiantsItem.addActionListener(e -> afficherPanel("etudiants"));
+        empruntsItem.addActionListener(e -> afficherPanel("emprunts"));
 
         gestionMenu.add(livresItem);
         gestionMenu.add(etudiantsItem);
@@ -99,10 +115,7 @@ public class BibliothequeGUI extends JFrame {
         // Menu Rapports
         JMenu rapportsMenu = new JMenu("Rapports");
         JMenuItem statistiquesItem = new JMenuItem("Statistiques");
-        statistiquesItem.addActionListener(e -> {
-            cardLayout.show(mainPanel, "statistiques");
-            statistiquesPanel.rafraichirStatistiques();
-        });
+        statistiquesItem.addActionListener(e -> afficherPanel("statistiques"));
         rapportsMenu.add(statistiquesItem);
 
         // Menu Aide
@@ -156,12 +169,7 @@ public class BibliothequeGUI extends JFrame {
         button.setBorderPainted(false);
         button.setFont(new Font("Arial", Font.PLAIN, 14));
 
-        button.addActionListener(e -> {
-            cardLayout.show(mainPanel, cardName);
-            if (cardName.equals("statistiques")) {
-                statistiquesPanel.rafraichirStatistiques();
-            }
-        });
+        button.addActionListener(e -> afficherPanel(cardName));
 
         panel.add(button);
         panel.add(Box.createRigidArea(new Dimension(0, 10)));
@@ -215,27 +223,160 @@ public class BibliothequeGUI extends JFrame {
         button.setFont(new Font("Arial", Font.BOLD, 14));
         button.setFocusPainted(false);
 
-        button.addActionListener(e -> {
-            cardLayout.show(mainPanel, cardName);
-            if (cardName.equals("statistiques")) {
-                statistiquesPanel.rafraichirStatistiques();
-            }
-        });
+        button.addActionListener(e -> afficherPanel(cardName));
 
         return button;
     }
 
-    private void testDatabaseConnection() {
-        if (!DatabaseConnection.testConnection()) {
-            JOptionPane.showMessageDialog(
-                    this,
-                    "Erreur de connexion à la base de données.\nVérifiez votre configuration.",
-                    "Erreur de connexion",
-                    JOptionPane.ERROR_MESSAGE
-            );
+    /**
+     * Afficher une section, en construisant son panel à la première visite
+     */
+    private void afficherPanel(String cardName) {
+        long debut = System.nanoTime();
+        boolean nouveau = false;
+
+        switch (cardName) {
+            case "livres":
+                if (livresPanel == null) {
+                    livresPanel = new GestionLivresPanel();
+                    mainPanel.add(livresPanel, cardName);
+                    nouveau = true;
+                }
+                break;
+            case "etudiants":
+                if (etudiantsPanel == null) {
+                    etudiantsPanel = new GestionEtudiantsPanel();
+                    mainPanel.add(etudiantsPanel, cardName);
+                    nouveau = true;
+                }
+                break;
+            case "emprunts":
+                if (empruntsPanel == null) {
+                    empruntsPanel = new GestionEmpruntsPanel();
+                    mainPanel.add(empruntsPanel, cardName);
+                    nouveau = true;
+                }
+                break;
+            case "statistiques":
+                if (statistiquesPanel == null) {
+                    statistiquesPanel = new StatistiquesPanel();
+                    mainPanel.add(statistiquesPanel, cardName);
+                    nouveau = true;
+                } else {
+                    statistiquesPanel.rafraichirStatistiques();
+                }
+                break;
+            default:
+                break;
+        }
+
+        cardLayout.show(mainPanel, cardName);
+        if (nouveau) {
+            journaliserPhase("construction du panel " + cardName, debut);
         }
     }
 
+    /**
+     * Préchauffage en parallèle, une fois la fenêtre affichée : pool de
+     * connexions, compteurs du tableau de bord et index de recherche des
+     * livres et des étudiants
+     */
+    private void prechauffer() {
+        long debut = System.nanoTime();
+        ExecutorService executeur = Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "prechauffage");
+            t.setDaemon(true);
+            return t;
+        });
+
+        CompletableFuture<Void> connexion = CompletableFuture.runAsync(() -> {
+            long debutTache = System.nanoTime();
+            boolean connecte = DatabaseConnection.testConnection();
+            journaliserPhase("connexion à la base", debutTache);
+            if (!connecte) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
+                        this,
+                        "Erreur de connexion à la base de données.\nVérifiez votre configuration.",
+                        "Erreur de connexion",
+                        JOptionPane.ERROR_MESSAGE
+                ));
+            }
+        }, executeur);
+
+        CompletableFuture<Void> compteurs = CompletableFuture.runAsync(() -> {
+            long debutTache = System.nanoTime();
+            CompteursStatistiques.getInstance().initialiser();
+            journaliserPhase("compteurs statistiques", debutTache);
+            // Après les compteurs, qui suivent les passages en retard par notification
+            BalayageRetards.getInstance().demarrer();
+        }, executeur);
+
+        // Livres et étudiants lus une seule fois, partagés par les index et l'autocomplétion
+        // Écouteurs enregistrés avant la lecture : ce qui change pendant celle-ci est rejoué à la construction
+        IndexLivres.getInstance().ecouter();
+        IndexEtudiants.getInstance().ecouter();
+        AutocompletionEmprunt.getInstance().ecouter();
+        AnalyseEmprunts.getInstance().ecouter();
+        // Dictionnaire des catégories d'abord : la lecture des livres y résout les noms
+        CompletableFuture<Void> categories = CompletableFuture.runAsync(() -> {
+            long debutTache = System.nanoTime();
+            DictionnaireCategories.getInstance().charger();
+            journaliserPhase("dictionnaire des catégories", debutTache);
+        }, executeur);
+        CompletableFuture<List<Livre>> livres = categories.thenApplyAsync(
+                v -> new LivreDAO().getAllLivres(), executeur);
+        CompletableFuture<List<Etudiant>> etudiants = CompletableFuture.supplyAsync(
+                () -> new EtudiantDAO().getEtudiantsAvecEmprunts(false), executeur);
+
+        CompletableFuture<Void> index = livres.thenAcceptAsync(tous -> {
+            long debutTache = System.nanoTime();
+            IndexLivres.getInstance().construire(tous);
+            journaliserPhase("index des livres (" + IndexLivres.getInstance().getNombreLivres() + ")", debutTache);
+        }, executeur);
+
+        CompletableFuture<Void> indexEtudiants = etudiants.thenAcceptAsync(tous -> {
+            long debutTache = System.nanoTime();
+            IndexEtudiants.getInstance().construire(tous);
+            journaliserPhase("index des étudiants (" + IndexEtudiants.getInstance().getNombreEtudiants() + ")",
+                    debutTache);
+        }, executeur);
+
+        CompletableFuture<Void> autocompletion = etudiants.thenAcceptBothAsync(livres, (tousEtudiants, tousLivres) -> {
+            long debutTache = System.nanoTime();
+            AutocompletionEmprunt.getInstance().construire(tousEtudiants, tousLivres);
+            // Compteurs d'emprunts en cours lus par l'autocomplétion
+            CacheEtudiants.getInstance().precharger(tousEtudiants);
+            journaliserPhase("autocomplétion des emprunts", debutTache);
+        }, executeur);
+
+        CompletableFuture<Void> referentielAnalyse = etudiants.thenAcceptBothAsync(livres, (tousEtudiants, tousLivres) -> {
+            long debutTache = System.nanoTime();
+            AnalyseEmprunts.getInstance().construire(tousEtudiants, tousLivres);
+            journaliserPhase("référentiel d'analyse", debutTache);
+        }, executeur);
+
+        CompletableFuture<Void> echeances = CompletableFuture.runAsync(() -> {
+            long debutTache = System.nanoTime();
+            IndexEcheances.getInstance().construire();
+            journaliserPhase("index des échéances (" + IndexEcheances.getInstance().getNombreEmpruntsActifs() + ")",
+                    debutTache);
+        }, executeur);
+
+        CompletableFuture.allOf(connexion, compteurs, index, indexEtudiants, autocompletion,
+                referentielAnalyse, echeances).whenComplete((r, e) -> {
+            if (e != null) {
+                System.err.println("Erreur lors du préchauffage: " + e.getMessage());
+            }
+            journaliserPhase("préchauffage", debut);
+            executeur.shutdown();
+        });
+    }
+
+    private static void journaliserPhase(String phase, long debutNanos) {
+        System.out.println("Démarrage - " + phase + ": " +
+                (System.nanoTime() - debutNanos) / 1_000_000 + " ms");
+    }
+
     private void showAboutDialog() {
         JOptionPane.showMessageDialog(
                 this,
@@ -249,16 +390,25 @@ public class BibliothequeGUI extends JFrame {
     }
 
     public static void main(String[] args) {
+        long debut = System.nanoTime();
         SwingUtilities.invokeLater(() -> {
+            long debutPhase = System.nanoTime();
             try {
                 // Utiliser le look and feel du système
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            journaliserPhase("look and feel", debutPhase);
 
+            debutPhase = System.nanoTime();
             BibliothequeGUI gui = new BibliothequeGUI();
+            journaliserPhase("construction de la fenêtre", debutPhase);
+
             gui.setVisible(true);
+            journaliserPhase("fenêtre affichée", debut);
+
+            gui.prechauffer();
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Liste déroulante de suggestions sous un champ texte.
+ *
+ * Les suggestions sont recalculées à chaque frappe (source en mémoire, sans
+ * délai). Flèches pour choisir, Entrée ou clic pour compléter, Échap pour
+ * fermer. Pour un champ à plusieurs valeurs, seul le dernier mot est complété.
+ */
+class ChampAutocompletion<T> {
+
+    static final int NOMBRE_SUGGESTIONS = 8;
+
+    private final JTextField champ;
+    private final Function<String, List<T>> source;
+    private final Function<T, String> valeur;
+    private final boolean plusieursValeurs;
+
+    private final DefaultListModel<T> suggestions = new DefaultListModel<>();
+    private final JList<T> liste = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+    private boolean completionEnCours = false;
+
+    /**
+     * @param source  suggestions pour un préfixe (au plus NOMBRE_SUGGESTIONS utilisées)
+     * @param valeur  texte inséré dans le champ pour une suggestion
+     * @param libelle texte affiché dans la liste
+     */
+    ChampAutocompletion(JTextField champ, Function<String, List<T>> source,
+                        Function<T, String> valeur, Function<T, String> libelle,
+                        boolean plusieursValeurs) {
+        this.champ = champ;
+        this.source = source;
+        this.valeur = valeur;
+        this.plusieursValeurs = plusieursValeurs;
+
+        liste.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        liste.setFocusable(false);
+        liste.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, libelle.apply((T) value), index,
+                        isSelected, cellHasFocus);
+            }
+        });
+        liste.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                completer();
+            }
+        });
+
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(liste));
+
+        champ.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                saisieModifiee();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                saisieModifiee();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // attributs seulement
+            }
+        });
+
+        champ.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                int index = liste.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        liste.setSelectedIndex(Math.min(index + 1, suggestions.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        liste.setSelectedIndex(Math.max(index - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        completer();
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        popup.setVisible(false);
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+    }
+
+    // Le drapeau est lu ici, pendant setText : l'actualisation différée s'exécute après sa remise à faux
+    private void saisieModifiee() {
+        if (!completionEnCours) {
+            SwingUtilities.invokeLater(this::actualiser);
+        }
+    }
+
+    private void actualiser() {
+        if (!champ.isShowing()) {
+            return;
+        }
+        String prefixe = dernierMot();
+        suggestions.clear();
+        if (!prefixe.isEmpty()) {
+            List<T> resultats = source.apply(prefixe);
+            for (int i = 0; i < resultats.size() && i < NOMBRE_SUGGESTIONS; i++) {
+                suggestions.addElement(resultats.get(i));
+            }
+        }
+
+        // Rien à proposer, ou la saisie est déjà la seule suggestion
+        if (suggestions.isEmpty() ||
+                (suggestions.size() == 1 && valeur.apply(suggestions.get(0)).equalsIgnoreCase(prefixe))) {
+            popup.setVisible(false);
+            return;
+        }
+
+        liste.setVisibleRowCount(suggestions.size());
+        liste.setSelectedIndex(0);
+        popup.setPopupSize(Math.max(champ.getWidth(), 300),
+                liste.getPreferredScrollableViewportSize().height + 6);
+        popup.show(champ, 0, champ.getHeight());
+        champ.requestFocusInWindow();
+    }
+
+    private void completer() {
+        T choix = liste.getSelectedValue();
+        popup.setVisible(false);
+        if (choix == null) {
+            return;
+        }
+
+        String texte = champ.getText();
+        String debut = plusieursValeurs ? texte.substring(0, texte.length() - dernierMot().length()) : "";
+        completionEnCours = true;
+        try {
+            champ.setText(debut + valeur.apply(choix));
+        } finally {
+            completionEnCours = false;
+        }
+    }
+
+    private String dernierMot() {
+        String texte = champ.getText();
+        if (!plusieursValeurs) {
+            return texte.trim();
+        }
+        int debut = texte.length();
+        while (debut > 0 && ",; \t".indexOf(texte.charAt(debut - 1)) < 0) {
+            debut--;
+        }
+        return texte.substring(debut);
+    }
+}
@@ -0,0 +1,105 @@
+package gui;
+
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Exécution des accès aux DAO hors du thread Swing (EDT).
+ *
+ * Chaque panel possède un chargeur par liste affichée : lancer un nouveau
+ * chargement annule celui en cours, dont le résultat est alors ignoré. Le
+ * résultat retenu est appliqué en une fois sur l'EDT.
+ *
+ * Les chargements en cours, tous chargeurs confondus, sont signalés par
+ * l'indicateur de la fenêtre principale.
+ */
+class ChargeurArrierePlan {
+
+    // État partagé, accédé uniquement depuis l'EDT
+    private static JProgressBar indicateur;
+    private static int nombreEnCours = 0;
+
+    private SwingWorker<?, ?> courant;
+
+    /**
+     * Exécuter la requête en arrière-plan puis afficher son résultat sur l'EDT.
+     * Un chargement précédent encore en cours est annulé.
+     */
+    <T> void lancer(Callable<T> requete, Consumer<T> affichage) {
+        annuler();
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return requete.call();
+            }
+
+            @Override
+            protected void done() {
+                if (courant != this) {
+                    return;
+                }
+                courant = null;
+
+                T resultat;
+                try {
+                    resultat = get();
+                } catch (CancellationException | InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    System.err.println("Erreur lors du chargement: " + e.getCause().getMessage());
+                    return;
+                }
+                affichage.accept(resultat);
+            }
+        };
+
+        courant = worker;
+        executer(worker);
+    }
+
+    /**
+     * Annuler le chargement en cours, s'il y en a un
+     */
+    void annuler() {
+        if (courant != null) {
+            SwingWorker<?, ?> ancien = courant;
+            courant = null;
+            ancien.cancel(true);
+        }
+    }
+
+    /**
+     * Démarrer un SwingWorker en le signalant à l'indicateur de progression
+     */
+    static void executer(SwingWorker<?, ?> worker) {
+        nombreEnCours++;
+        mettreAJourIndicateur();
+
+        // Les événements de SwingWorker sont émis sur l'EDT
+        worker.addPropertyChangeListener(evt -> {
+            if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+                nombreEnCours--;
+                mettreAJourIndicateur();
+            }
+        });
+        worker.execute();
+    }
+
+    static void setIndicateur(JProgressBar barre) {
+        indicateur = barre;
+        mettreAJourIndicateur();
+    }
+
+    private static void mettreAJourIndicateur() {
+        if (indicateur == null) {
+            return;
+        }
+        indicateur.setVisible(nombreEnCours > 0);
+        indicateur.setIndeterminate(nombreEnCours > 0);
+        indicateur.setString(nombreEnCours > 1 ? "Chargement (" + nombreEnCours + ")..." : "Chargement...");
+    }
+}
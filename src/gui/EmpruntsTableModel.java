@@ -0,0 +1,266 @@
+package gui;
+
+import dao.EmpruntDAO;
+import models.Emprunt;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Modèle de table des emprunts.
+ *
+ * Deux modes : une liste déjà chargée (emprunts en cours, en retard), ou une
+ * source paginée où les pages sont demandées à EmpruntDAO au fur et à mesure
+ * que les lignes deviennent visibles. Seules les dernières pages consultées
+ * sont gardées en mémoire ; les cellules sont formatées à l'affichage.
+ */
+class EmpruntsTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLONNES = {"ID", "Livre", "Étudiant", "Date Emprunt",
+            "Retour Prévu", "Retour Effectif", "Statut", "Pénalité"};
+    private static final int TAILLE_PAGE = 100;
+    private static final int PAGES_EN_CACHE = 20;
+    // Délai avant de redemander une page dont la requête a échoué
+    private static final int DELAI_RELANCE_MS = 2000;
+
+    private final EmpruntDAO empruntDAO;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+
+    // Mode liste
+    private List<Emprunt> liste = new ArrayList<>();
+
+    // Mode paginé
+    private boolean pagine = false;
+    private String statut;
+    private int nombreLignes;
+    private final Map<Integer, List<Emprunt>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Emprunt>> eldest) {
+            return size() > PAGES_EN_CACHE;
+        }
+    };
+    // Curseur (date, id) du dernier emprunt de chaque page déjà lue
+    private long[] curseursDate = new long[0];
+    private int[] curseursId = new int[0];
+    private final Set<Integer> pagesEnChargement = new HashSet<>();
+    private int generation = 0;
+
+    // Instant des calculs de retard, fixé à chaque chargement plutôt qu'à chaque cellule
+    private long maintenant = System.currentTimeMillis();
+
+    EmpruntsTableModel(EmpruntDAO empruntDAO) {
+        this.empruntDAO = empruntDAO;
+    }
+
+    /**
+     * Afficher une liste déjà chargée
+     */
+    void setEmprunts(List<Emprunt> emprunts) {
+        generation++;
+        maintenant = System.currentTimeMillis();
+        pagine = false;
+        liste = emprunts;
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Afficher tous les emprunts d'un statut (null = tous), chargés page par page
+     */
+    void setSourcePaginee(String statut, int nombre) {
+        generation++;
+        maintenant = System.currentTimeMillis();
+        pagine = true;
+        this.statut = statut;
+        nombreLignes = Math.max(0, nombre);
+        liste = new ArrayList<>();
+        pages.clear();
+        pagesEnChargement.clear();
+        curseursDate = new long[0];
+        curseursId = new int[0];
+        fireTableDataChanged();
+
+        // Le nombre peut avoir changé depuis le comptage : la première page le corrige
+        chargerPage(0);
+    }
+
+    /**
+     * Emprunt affiché à cette ligne, ou null s'il n'est pas encore chargé
+     */
+    Emprunt getEmpruntA(int row) {
+        if (!pagine) {
+            return row < liste.size() ? liste.get(row) : null;
+        }
+
+        List<Emprunt> page = pages.get(row / TAILLE_PAGE);
+        if (page == null) {
+            chargerPage(row / TAILLE_PAGE);
+            return null;
+        }
+        int index = row % TAILLE_PAGE;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return pagine ? nombreLignes : liste.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLONNES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLONNES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Emprunt emprunt = getEmpruntA(row);
+        if (emprunt == null) {
+            return column == 1 ? "Chargement..." : null;
+        }
+
+        switch (column) {
+            case 0:
+                return emprunt.getIdEmprunt();
+            case 1:
+                return emprunt.getTitreLivre();
+            case 2:
+                return emprunt.getNomEtudiant();
+            case 3:
+                return dateFormat.format(emprunt.getDateEmprunt());
+            case 4:
+                return dateFormat.format(emprunt.getDateRetourPrevue());
+            case 5:
+                return emprunt.getDateRetourEffective() != null ?
+                        dateFormat.format(emprunt.getDateRetourEffective()) : "-";
+            case 6:
+                if (emprunt.estEnRetard(maintenant)) {
+                    return "EN RETARD (" + emprunt.getJoursRetard(maintenant) + " jours)";
+                }
+                return emprunt.getStatut();
+            case 7:
+                return String.format("%.2f DH", emprunt.getPenalite());
+            default:
+                return null;
+        }
+    }
+
+    private void chargerPage(int page) {
+        if (!pagesEnChargement.add(page)) {
+            return;
+        }
+
+        int generationDemande = generation;
+        String statutDemande = statut;
+        // Dernière page avant celle-ci dont le curseur est connu ; le saut part de là
+        int depart = Math.min(page, curseursId.length) - 1;
+        while (depart >= 0 && curseursId[depart] == 0) {
+            depart--;
+        }
+        Date curseurDate = depart >= 0 ? new Date(curseursDate[depart]) : null;
+        int curseurId = depart >= 0 ? curseursId[depart] : 0;
+        int saut = (page - 1 - depart) * TAILLE_PAGE;
+
+        ChargeurArrierePlan.executer(new SwingWorker<List<Emprunt>, Void>() {
+            @Override
+            protected List<Emprunt> doInBackground() {
+                return empruntDAO.getEmpruntsApresSaut(statutDemande, curseurDate, curseurId, saut, TAILLE_PAGE);
+            }
+
+            @Override
+            protected void done() {
+                if (generationDemande != generation) {
+                    return;
+                }
+
+                List<Emprunt> emprunts;
+                try {
+                    emprunts = get();
+                } catch (Exception e) {
+                    System.err.println("Erreur lors du chargement de la page: " + e.getMessage());
+                    emprunts = null;
+                }
+                if (emprunts == null) {
+                    relancer(page);
+                    return;
+                }
+                pagesEnChargement.remove(page);
+                pageChargee(page, emprunts);
+            }
+        });
+    }
+
+    // Requête en échec : le nombre de lignes est gardé, la page reste « en chargement »
+    // puis est redemandée après un délai, quand ses lignes sont redessinées
+    private void relancer(int page) {
+        int generationDemande = generation;
+        Timer minuterie = new Timer(DELAI_RELANCE_MS, e -> {
+            if (generationDemande != generation) {
+                return;
+            }
+            pagesEnChargement.remove(page);
+            int debut = page * TAILLE_PAGE;
+            if (debut < nombreLignes) {
+                fireTableRowsUpdated(debut, Math.min(debut + TAILLE_PAGE, nombreLignes) - 1);
+            }
+        });
+        minuterie.setRepeats(false);
+        minuterie.start();
+    }
+
+    private void pageChargee(int page, List<Emprunt> emprunts) {
+        pages.put(page, emprunts);
+
+        if (!emprunts.isEmpty()) {
+            Emprunt dernier = emprunts.get(emprunts.size() - 1);
+            if (page >= curseursId.length) {
+                int taille = Math.max(page + 1, curseursId.length * 2);
+                curseursDate = Arrays.copyOf(curseursDate, taille);
+                curseursId = Arrays.copyOf(curseursId, taille);
+            }
+            curseursDate[page] = dernier.getDateEmpruntMillis();
+            curseursId[page] = dernier.getIdEmprunt();
+        }
+
+        int debut = page * TAILLE_PAGE;
+        if (emprunts.size() < TAILLE_PAGE) {
+            // Page incomplète : fin de la liste atteinte, le nombre exact est connu
+            // (une page vide après un saut indique seulement que la fin est avant)
+            int nombreExact = debut + emprunts.size();
+            if (nombreExact != nombreLignes) {
+                nombreLignes = nombreExact;
+                fireTableDataChanged();
+                return;
+            }
+        } else if (debut + TAILLE_PAGE >= nombreLignes) {
+            // Nombre trop bas (emprunts créés depuis le comptage) : on ouvre une page de plus
+            int ancien = nombreLignes;
+            nombreLignes = debut + 2 * TAILLE_PAGE;
+            fireTableRowsInserted(ancien, nombreLignes - 1);
+        }
+
+        if (debut < nombreLignes) {
+            fireTableRowsUpdated(debut, Math.min(debut + TAILLE_PAGE, nombreLignes) - 1);
+        }
+    }
+}
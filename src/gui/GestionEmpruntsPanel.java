@@ -1,18 +1,18 @@
 package gui;
 
+import dao.CacheEtudiants;
+import dao.CheckoutService;
 import dao.EmpruntDAO;
-import dao.EtudiantDAO;
-import dao.LivreDAO;
+import dao.IndexEcheances;
 import models.Emprunt;
-import models.Etudiant;
-import models.Livre;
+import recherche.AutocompletionEmprunt;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,17 +21,16 @@ import java.util.List;
 public class GestionEmpruntsPanel extends JPanel {
 
     private EmpruntDAO empruntDAO;
-    private EtudiantDAO etudiantDAO;
-    private LivreDAO livreDAO;
+    private CheckoutService checkoutService;
     private JTable tableEmprunts;
-    private DefaultTableModel tableModel;
+    private EmpruntsTableModel tableModel;
     private JComboBox<String> filtreCombo;
+    private final ChargeurArrierePlan chargeur = new ChargeurArrierePlan();
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
 
     public GestionEmpruntsPanel() {
         empruntDAO = new EmpruntDAO();
-        etudiantDAO = new EtudiantDAO();
-        livreDAO = new LivreDAO();
+        checkoutService = new CheckoutService();
         initializePanel();
         chargerEmprunts();
     }
@@ -68,14 +67,7 @@ public class GestionEmpruntsPanel extends JPanel {
         add(topPanel, BorderLayout.NORTH);
 
         // Table des emprunts
-        String[] colonnes = {"ID", "Livre", "Étudiant", "Date Emprunt",
-                "Retour Prévu", "Retour Effectif", "Statut", "Pénalité"};
-        tableModel = new DefaultTableModel(colonnes, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new EmpruntsTableModel(empruntDAO);
 
         tableEmprunts = new JTable(tableModel);
         tableEmprunts.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -88,6 +80,7 @@ public class GestionEmpruntsPanel extends JPanel {
 
         JButton btnNouvel = new JButton("Nouvel Emprunt");
         JButton btnRetour = new JButton("Retourner Livre");
+        JButton btnRetoursGroupes = new JButton("Retours groupés");
         JButton btnRappel = new JButton("Envoyer Rappel");
         JButton btnDetails = new JButton("Détails");
 
@@ -95,6 +88,8 @@ public class GestionEmpruntsPanel extends JPanel {
         btnNouvel.setForeground(Color.WHITE);
         btnRetour.setBackground(new Color(52, 152, 219));
         btnRetour.setForeground(Color.WHITE);
+        btnRetoursGroupes.setBackground(new Color(52, 152, 219));
+        btnRetoursGroupes.setForeground(Color.WHITE);
         btnRappel.setBackground(new Color(243, 156, 18));
         btnRappel.setForeground(Color.WHITE);
         btnDetails.setBackground(new Color(149, 165, 166));
@@ -102,55 +97,60 @@ public class GestionEmpruntsPanel extends JPanel {
 
         btnNouvel.addActionListener(e -> nouvelEmprunt());
         btnRetour.addActionListener(e -> retournerLivre());
+        btnRetoursGroupes.addActionListener(e -> retoursGroupes());
         btnRappel.addActionListener(e -> envoyerRappel());
         btnDetails.addActionListener(e -> afficherDetails());
 
         buttonPanel.add(btnNouvel);
         buttonPanel.add(btnRetour);
+        buttonPanel.add(btnRetoursGroupes);
         buttonPanel.add(btnRappel);
         buttonPanel.add(btnDetails);
 
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
-    private void chargerEmprunts() {
-        tableModel.setRowCount(0);
-        List<Emprunt> emprunts;
+    // Titre et nom des emprunts notifiés à l'index, lus dans l'autocomplétion (à défaut ISBN et CNE)
+    private static List<Emprunt> completerAffichage(List<Emprunt> emprunts) {
+        AutocompletionEmprunt autocompletion = AutocompletionEmprunt.getInstance();
+        for (Emprunt emprunt : emprunts) {
+            if (emprunt.getTitreLivre() == null) {
+                AutocompletionEmprunt.SuggestionLivre livre = autocompletion.getLivre(emprunt.getIsbn());
+                emprunt.setTitreLivre(livre != null ? livre.titre : emprunt.getIsbn());
+            }
+            if (emprunt.getNomEtudiant() == null) {
+                AutocompletionEmprunt.SuggestionEtudiant etudiant = autocompletion.getEtudiant(emprunt.getCne());
+                emprunt.setNomEtudiant(etudiant != null ? etudiant.nomComplet : emprunt.getCne());
+            }
+        }
+        return emprunts;
+    }
 
+    private void chargerEmprunts() {
         String filtre = (String) filtreCombo.getSelectedItem();
         switch (filtre) {
             case "En cours":
-                emprunts = empruntDAO.getEmpruntsEnCours();
+                chargeur.lancer(empruntDAO::getEmpruntsEnCours, tableModel::setEmprunts);
                 break;
             case "En retard":
-                emprunts = empruntDAO.getEmpruntsEnRetard();
+                if (IndexEcheances.getInstance().estPret()) {
+                    // Lu en mémoire, à la date du jour
+                    chargeur.annuler();
+                    tableModel.setEmprunts(completerAffichage(IndexEcheances.getInstance().getEnRetard()));
+                } else {
+                    chargeur.lancer(empruntDAO::getEmpruntsEnRetard, tableModel::setEmprunts);
+                }
+                break;
+            case "Retournés":
+                chargeur.lancer(() -> empruntDAO.compterEmprunts("RETOURNE"),
+                        nombre -> tableModel.setSourcePaginee("RETOURNE", nombre));
                 break;
             default:
-                emprunts = empruntDAO.getAllEmprunts();
+                // Historique complet : chargé page par page selon le défilement
+                chargeur.lancer(() -> empruntDAO.compterEmprunts(null),
+                        nombre -> tableModel.setSourcePaginee(null, nombre));
                 break;
         }
-
-        for (Emprunt emprunt : emprunts) {
-            String dateRetourEffective = emprunt.getDateRetourEffective() != null ?
-                    dateFormat.format(emprunt.getDateRetourEffective()) : "-";
-
-            String statut = emprunt.getStatut();
-            if (emprunt.estEnRetard()) {
-                statut = "EN RETARD (" + emprunt.getJoursRetard() + " jours)";
-            }
-
-            Object[] row = {
-                    emprunt.getIdEmprunt(),
-                    emprunt.getTitreLivre(),
-                    emprunt.getNomEtudiant(),
-                    dateFormat.format(emprunt.getDateEmprunt()),
-                    dateFormat.format(emprunt.getDateRetourPrevue()),
-                    dateRetourEffective,
-                    statut,
-                    String.format("%.2f DH", emprunt.getPenalite())
-            };
-            tableModel.addRow(row);
-        }
     }
 
     private void nouvelEmprunt() {
@@ -176,43 +176,86 @@ public class GestionEmpruntsPanel extends JPanel {
         JLabel etudiantLabel = new JLabel("Non vérifié");
         JLabel livreLabel = new JLabel("Non vérifié");
 
+        // Suggestions et état affichés à la frappe, depuis la mémoire ;
+        // « Vérifier » et la création de l'emprunt interrogent la base
+        AutocompletionEmprunt autocompletion = AutocompletionEmprunt.getInstance();
+        new ChampAutocompletion<>(cneField,
+                prefixe -> autocompletion.completerCne(prefixe, ChampAutocompletion.NOMBRE_SUGGESTIONS),
+                etudiant -> etudiant.cne,
+                etudiant -> etudiant.cne + " - " + etudiant.nomComplet +
+                        " (" + formaterEmprunts(etudiant.cne) + "/" + CheckoutService.MAX_EMPRUNTS + ")",
+                false);
+        new ChampAutocompletion<>(isbnField,
+                prefixe -> autocompletion.completerIsbn(prefixe, ChampAutocompletion.NOMBRE_SUGGESTIONS),
+                livre -> livre.isbn,
+                livre -> livre.isbn + " - " + livre.titre +
+                        " (" + livre.exemplairesDisponibles.get() + " disp.)",
+                true);
+        // Vérifications en base hors de l'EDT ; une saisie ultérieure annule celle en cours
+        ChargeurArrierePlan verificationEtudiant = new ChargeurArrierePlan();
+        ChargeurArrierePlan verificationLivres = new ChargeurArrierePlan();
+        surModification(cneField, () -> {
+            verificationEtudiant.annuler();
+            afficherEtatEtudiant(cneField.getText(), etudiantLabel);
+        });
+        surModification(isbnField, () -> {
+            verificationLivres.annuler();
+            afficherEtatLivres(lireIsbns(isbnField.getText()), livreLabel);
+        });
+
         // Vérification étudiant
         btnVerifEtudiant.addActionListener(e -> {
             String cne = cneField.getText().trim();
-            if (!cne.isEmpty()) {
-                Etudiant etudiant = etudiantDAO.getEtudiantParCne(cne);
-                if (etudiant != null && etudiant.isActif()) {
-                    if (etudiantDAO.peutEmprunter(cne, 3)) {
-                        etudiantLabel.setText("✓ " + etudiant.getNomComplet());
-                        etudiantLabel.setForeground(new Color(46, 204, 113));
-                    } else {
-                        etudiantLabel.setText("✗ Limite d'emprunts atteinte");
-                        etudiantLabel.setForeground(Color.RED);
-                    }
+            if (cne.isEmpty()) {
+                return;
+            }
+            etudiantLabel.setText("Vérification...");
+            etudiantLabel.setForeground(Color.GRAY);
+            verificationEtudiant.lancer(() -> checkoutService.verifier(cne, null), verification -> {
+                if (verification.motifEtudiant == CheckoutService.Motif.ACCEPTE) {
+                    etudiantLabel.setText("✓ " + verification.nomEtudiant + " (Emprunts: " +
+                            verification.nombreEmprunts + "/" + CheckoutService.MAX_EMPRUNTS + ")");
+                    etudiantLabel.setForeground(new Color(46, 204, 113));
                 } else {
-                    etudiantLabel.setText("✗ Étudiant non trouvé ou inactif");
+                    etudiantLabel.setText("✗ " + verification.motifEtudiant.getMessage());
                     etudiantLabel.setForeground(Color.RED);
                 }
-            }
+            });
         });
 
-        // Vérification livre
+        // Vérification livre(s) : un à un, jusqu'au premier refusé
         btnVerifLivre.addActionListener(e -> {
-            String isbn = isbnField.getText().trim();
-            if (!isbn.isEmpty()) {
-                Livre livre = livreDAO.getLivreParIsbn(isbn);
-                if (livre != null && livre.estDisponible()) {
-                    livreLabel.setText("✓ " + livre.getTitre() + " (Disponibles: " +
-                            livre.getExemplairesDisponibles() + ")");
-                    livreLabel.setForeground(new Color(46, 204, 113));
-                } else if (livre != null) {
-                    livreLabel.setText("✗ Aucun exemplaire disponible");
+            List<String> isbns = lireIsbns(isbnField.getText());
+            if (isbns.isEmpty()) {
+                return;
+            }
+            livreLabel.setText("Vérification...");
+            livreLabel.setForeground(Color.GRAY);
+            verificationLivres.lancer(() -> {
+                List<CheckoutService.Verification> verifications = new ArrayList<>();
+                for (String isbn : isbns) {
+                    CheckoutService.Verification verification = checkoutService.verifier(null, isbn);
+                    verifications.add(verification);
+                    if (verification.motifLivre != CheckoutService.Motif.ACCEPTE) {
+                        break;
+                    }
+                }
+                return verifications;
+            }, verifications -> {
+                CheckoutService.Verification derniere = verifications.get(verifications.size() - 1);
+                if (derniere.motifLivre != CheckoutService.Motif.ACCEPTE) {
+                    String isbn = isbns.size() > 1 ? isbns.get(verifications.size() - 1) + ": " : "";
+                    livreLabel.setText("✗ " + isbn + derniere.motifLivre.getMessage());
                     livreLabel.setForeground(Color.RED);
+                } else if (isbns.size() == 1) {
+                    livreLabel.setText("✓ " + derniere.titreLivre + " (Disponibles: " +
+                            derniere.exemplairesDisponibles + ")");
+                    livreLabel.setForeground(new Color(46, 204, 113));
                 } else {
-                    livreLabel.setText("✗ Livre non trouvé");
-                    livreLabel.setForeground(Color.RED);
+                    livreLabel.setText("✓ " + isbns.size() + " livres disponibles");
+                    livreLabel.setForeground(new Color(46, 204, 113));
                 }
-            }
+            });
         });
 
         // Ajouter les composants
@@ -227,7 +270,8 @@ public class GestionEmpruntsPanel extends JPanel {
         panel.add(etudiantLabel, gbc);
 
         gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 1;
-        panel.add(new JLabel("ISBN Livre:"), gbc);
+        panel.add(new JLabel("ISBN Livre(s):"), gbc);
+        isbnField.setToolTipText("Plusieurs ISBN séparés par des virgules ou des espaces");
         gbc.gridx = 1;
         panel.add(isbnField, gbc);
         gbc.gridx = 2;
@@ -248,9 +292,9 @@ public class GestionEmpruntsPanel extends JPanel {
 
         btnCreer.addActionListener(e -> {
             String cne = cneField.getText().trim();
-            String isbn = isbnField.getText().trim();
+            List<String> isbns = lireIsbns(isbnField.getText());
 
-            if (cne.isEmpty() || isbn.isEmpty()) {
+            if (cne.isEmpty() || isbns.isEmpty()) {
                 JOptionPane.showMessageDialog(dialog,
                         "Veuillez remplir tous les champs!",
                         "Validation",
@@ -258,54 +302,27 @@ public class GestionEmpruntsPanel extends JPanel {
                 return;
             }
 
-            // Vérifications finales
-            Etudiant etudiant = etudiantDAO.getEtudiantParCne(cne);
-            Livre livre = livreDAO.getLivreParIsbn(isbn);
-
-            if (etudiant == null || !etudiant.isActif()) {
-                JOptionPane.showMessageDialog(dialog,
-                        "Étudiant non valide!",
-                        "Erreur",
-                        JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            if (livre == null || !livre.estDisponible()) {
-                JOptionPane.showMessageDialog(dialog,
-                        "Livre non disponible!",
-                        "Erreur",
-                        JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            if (!etudiantDAO.peutEmprunter(cne, 3)) {
-                JOptionPane.showMessageDialog(dialog,
-                        "L'étudiant a atteint la limite d'emprunts!",
-                        "Erreur",
-                        JOptionPane.ERROR_MESSAGE);
+            if (isbns.size() > 1) {
+                creerEmpruntsGroupes(dialog, cne, isbns, (Integer) dureeSpinner.getValue());
                 return;
             }
 
-            // Créer l'emprunt
-            Date dateEmprunt = new Date();
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(dateEmprunt);
-            cal.add(Calendar.DAY_OF_MONTH, (Integer) dureeSpinner.getValue());
-            Date dateRetourPrevue = cal.getTime();
-
-            Emprunt emprunt = new Emprunt(isbn, cne, dateEmprunt, dateRetourPrevue);
+            // Vérifications et création en une seule transaction
+            CheckoutService.ResultatEmprunt resultat = checkoutService.emprunter(
+                    cne, isbns.get(0), (Integer) dureeSpinner.getValue());
 
-            if (empruntDAO.creerEmprunt(emprunt)) {
+            if (resultat.estAccepte()) {
                 JOptionPane.showMessageDialog(dialog,
                         "Emprunt créé avec succès!\n" +
-                                "Date de retour prévue: " + dateFormat.format(dateRetourPrevue),
+                                "Date de retour prévue: " +
+                                dateFormat.format(resultat.emprunt.getDateRetourPrevue()),
                         "Succès",
                         JOptionPane.INFORMATION_MESSAGE);
                 chargerEmprunts();
                 dialog.dispose();
             } else {
                 JOptionPane.showMessageDialog(dialog,
-                        "Erreur lors de la création de l'emprunt.",
+                        "Emprunt refusé: " + resultat.motif.getMessage(),
                         "Erreur",
                         JOptionPane.ERROR_MESSAGE);
             }
@@ -323,6 +340,120 @@ public class GestionEmpruntsPanel extends JPanel {
         dialog.setVisible(true);
     }
 
+    private static void surModification(JTextField champ, Runnable action) {
+        champ.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                action.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // attributs seulement
+            }
+        });
+    }
+
+    // Emprunts en cours d'après le cache des étudiants, « ? » s'il n'y est pas
+    private static String formaterEmprunts(String cne) {
+        int emprunts = CacheEtudiants.getInstance().getEmpruntsEnCours(cne);
+        return emprunts >= 0 ? String.valueOf(emprunts) : "?";
+    }
+
+    // État de l'étudiant d'après le cache ; inconnu -> « Non vérifié »
+    private static void afficherEtatEtudiant(String cne, JLabel label) {
+        AutocompletionEmprunt.SuggestionEtudiant etudiant = AutocompletionEmprunt.getInstance().estPret()
+                && !cne.trim().isEmpty() ? AutocompletionEmprunt.getInstance().getEtudiant(cne.trim()) : null;
+        if (etudiant == null) {
+            label.setText("Non vérifié");
+            label.setForeground(UIManager.getColor("Label.foreground"));
+            return;
+        }
+
+        int emprunts = CacheEtudiants.getInstance().getEmpruntsEnCours(etudiant.cne);
+        if (!etudiant.actif) {
+            label.setText("✗ " + etudiant.nomComplet + ": " + CheckoutService.Motif.ETUDIANT_INACTIF.getMessage());
+            label.setForeground(Color.RED);
+        } else if (emprunts >= CheckoutService.MAX_EMPRUNTS) {
+            label.setText("✗ " + etudiant.nomComplet + ": " + CheckoutService.Motif.LIMITE_ATTEINTE.getMessage());
+            label.setForeground(Color.RED);
+        } else {
+            label.setText("✓ " + etudiant.nomComplet + " (Emprunts: " +
+                    formaterEmprunts(etudiant.cne) + "/" + CheckoutService.MAX_EMPRUNTS + ")");
+            label.setForeground(new Color(46, 204, 113));
+        }
+    }
+
+    // État des livres saisis d'après le cache ; un ISBN inconnu -> « Non vérifié »
+    private static void afficherEtatLivres(List<String> isbns, JLabel label) {
+        AutocompletionEmprunt autocompletion = AutocompletionEmprunt.getInstance();
+        List<AutocompletionEmprunt.SuggestionLivre> livres = new ArrayList<>();
+        for (String isbn : isbns) {
+            AutocompletionEmprunt.SuggestionLivre livre = autocompletion.estPret() ? autocompletion.getLivre(isbn) : null;
+            if (livre == null) {
+                break;
+            }
+            livres.add(livre);
+        }
+        if (livres.isEmpty() || livres.size() < isbns.size()) {
+            label.setText("Non vérifié");
+            label.setForeground(UIManager.getColor("Label.foreground"));
+            return;
+        }
+
+        for (AutocompletionEmprunt.SuggestionLivre livre : livres) {
+            if (livre.exemplairesDisponibles.get() <= 0) {
+                label.setText("✗ " + livre.isbn + ": " + CheckoutService.Motif.LIVRE_INDISPONIBLE.getMessage());
+                label.setForeground(Color.RED);
+                return;
+            }
+        }
+        if (livres.size() == 1) {
+            label.setText("✓ " + livres.get(0).titre + " (Disponibles: " +
+                    livres.get(0).exemplairesDisponibles.get() + ")");
+        } else {
+            label.setText("✓ " + livres.size() + " livres disponibles");
+        }
+        label.setForeground(new Color(46, 204, 113));
+    }
+
+    // Plusieurs livres pour un même étudiant : un seul lot, tout ou rien
+    private void creerEmpruntsGroupes(JDialog dialog, String cne, List<String> isbns, int dureeJours) {
+        CheckoutService.ResultatLot resultat = empruntDAO.creerEmprunts(cne, isbns, dureeJours);
+
+        if (resultat.estAccepte()) {
+            JOptionPane.showMessageDialog(dialog,
+                    resultat.emprunts.size() + " emprunts créés avec succès!\n" +
+                            "Date de retour prévue: " +
+                            dateFormat.format(resultat.emprunts.get(0).getDateRetourPrevue()),
+                    "Succès",
+                    JOptionPane.INFORMATION_MESSAGE);
+            chargerEmprunts();
+            dialog.dispose();
+        } else {
+            String message = "Aucun emprunt créé: " + resultat.motif.getMessage();
+            if (resultat.isbnRefuse != null) {
+                message += " (ISBN " + resultat.isbnRefuse + ")";
+            }
+            JOptionPane.showMessageDialog(dialog, message, "Erreur", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private List<String> lireIsbns(String saisie) {
+        List<String> isbns = new ArrayList<>();
+        for (String isbn : saisie.trim().split("[,;\\s]+")) {
+            if (!isbn.isEmpty()) {
+                isbns.add(isbn);
+            }
+        }
+        return isbns;
+    }
+
     private void retournerLivre() {
         int selectedRow = tableEmprunts.getSelectedRow();
         if (selectedRow == -1) {
@@ -333,10 +464,13 @@ public class GestionEmpruntsPanel extends JPanel {
             return;
         }
 
-        int idEmprunt = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String statut = (String) tableModel.getValueAt(selectedRow, 6);
+        Emprunt selection = tableModel.getEmpruntA(selectedRow);
+        if (selection == null) {
+            return;
+        }
+        int idEmprunt = selection.getIdEmprunt();
 
-        if (statut.equals("RETOURNE")) {
+        if (selection.getStatut().equals("RETOURNE")) {
             JOptionPane.showMessageDialog(this,
                     "Ce livre a déjà été retourné.",
                     "Information",
@@ -382,6 +516,73 @@ public class GestionEmpruntsPanel extends JPanel {
         }
     }
 
+    // Station de retour : ISBN scannés un par ligne, traités en un seul lot
+    private void retoursGroupes() {
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this),
+                "Retours groupés", true);
+        dialog.setSize(500, 450);
+        dialog.setLocationRelativeTo(this);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JTextArea scansArea = new JTextArea();
+        JTextArea rapportArea = new JTextArea(8, 40);
+        rapportArea.setEditable(false);
+
+        panel.add(new JLabel("ISBN scannés (un par ligne):"), BorderLayout.NORTH);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(scansArea), new JScrollPane(rapportArea));
+        splitPane.setResizeWeight(0.5);
+        panel.add(splitPane, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton btnTraiter = new JButton("Traiter les retours");
+        JButton btnFermer = new JButton("Fermer");
+
+        // Lot traité hors de l'EDT ; bouton désactivé jusqu'au rapport pour ne pas le soumettre deux fois
+        ChargeurArrierePlan traitement = new ChargeurArrierePlan();
+        btnTraiter.addActionListener(e -> {
+            List<String> isbns = lireIsbns(scansArea.getText());
+            if (isbns.isEmpty()) {
+                return;
+            }
+
+            btnTraiter.setEnabled(false);
+            rapportArea.setText("Traitement de " + isbns.size() + " retour(s)...");
+            traitement.lancer(() -> empruntDAO.retournerLivresParIsbn(isbns), resultat -> {
+                btnTraiter.setEnabled(true);
+                afficherRapportRetours(resultat, rapportArea);
+                scansArea.setText("");
+                chargerEmprunts();
+            });
+        });
+
+        btnFermer.addActionListener(e -> dialog.dispose());
+
+        buttonPanel.add(btnTraiter);
+        buttonPanel.add(btnFermer);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        dialog.add(panel);
+        dialog.setVisible(true);
+    }
+
+    private static void afficherRapportRetours(EmpruntDAO.ResultatRetours resultat, JTextArea rapportArea) {
+        StringBuilder rapport = new StringBuilder();
+        rapport.append(String.format("%d/%d retournés en %d ms (%.0f/s), pénalités: %.2f DH%n%n",
+                resultat.getNombreRetournes(), resultat.issues.size(), resultat.dureeMs,
+                resultat.getDebit(), resultat.getTotalPenalites()));
+        for (int i = 0; i < resultat.issues.size(); i++) {
+            rapport.append(resultat.references.get(i)).append(" : ").append(resultat.issues.get(i));
+            if (resultat.penalites.get(i) > 0) {
+                rapport.append(String.format(" (pénalité %.2f DH)", resultat.penalites.get(i)));
+            }
+            rapport.append('\n');
+        }
+        rapportArea.setText(rapport.toString());
+    }
+
     private void envoyerRappel() {
         int selectedRow = tableEmprunts.getSelectedRow();
         if (selectedRow == -1) {
@@ -392,8 +593,12 @@ public class GestionEmpruntsPanel extends JPanel {
             return;
         }
 
-        String etudiant = (String) tableModel.getValueAt(selectedRow, 2);
-        String livre = (String) tableModel.getValueAt(selectedRow, 1);
+        Emprunt selection = tableModel.getEmpruntA(selectedRow);
+        if (selection == null) {
+            return;
+        }
+        String etudiant = selection.getNomEtudiant();
+        String livre = selection.getTitreLivre();
 
         JOptionPane.showMessageDialog(this,
                 "Rappel envoyé à: " + etudiant +
@@ -413,8 +618,11 @@ public class GestionEmpruntsPanel extends JPanel {
             return;
         }
 
-        int idEmprunt = (Integer) tableModel.getValueAt(selectedRow, 0);
-        Emprunt emprunt = empruntDAO.getEmpruntParId(idEmprunt);
+        Emprunt selection = tableModel.getEmpruntA(selectedRow);
+        if (selection == null) {
+            return;
+        }
+        Emprunt emprunt = empruntDAO.getEmpruntParId(selection.getIdEmprunt());
 
         if (emprunt != null) {
             String details = String.format(
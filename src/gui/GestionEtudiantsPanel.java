@@ -13,11 +13,17 @@ import java.util.List;
  */
 public class GestionEtudiantsPanel extends JPanel {
 
+    private static final int RESULTATS_PAR_PAGE = 50;
+
     private EtudiantDAO etudiantDAO;
     private JTable tableEtudiants;
     private DefaultTableModel tableModel;
     private JTextField rechercheField;
     private JCheckBox actifCheckBox;
+    private final ChargeurArrierePlan chargeur = new ChargeurArrierePlan();
+    private RechercheInstantanee<Etudiant> recherche;
+    // Copie de la case à cocher, lue par la recherche hors de l'EDT
+    private volatile boolean actifsSeulement = true;
 
     public GestionEtudiantsPanel() {
         etudiantDAO = new EtudiantDAO();
@@ -43,14 +49,27 @@ public class GestionEtudiantsPanel extends JPanel {
         JButton btnRechercher = new JButton("Rechercher");
         JButton btnTous = new JButton("Tous");
 
-        btnRechercher.addActionListener(e -> rechercherEtudiants());
-        btnTous.addActionListener(e -> chargerEtudiants());
-        actifCheckBox.addActionListener(e -> chargerEtudiants());
+        // Recherche au fil de la saisie, par pages de RESULTATS_PAR_PAGE étudiants
+        recherche = new RechercheInstantanee<>(rechercheField, RESULTATS_PAR_PAGE,
+                (texte, apres, limite, jeton) -> etudiantDAO.rechercherEtudiants(texte, actifsSeulement,
+                        apres != null ? apres.getNom() : null,
+                        apres != null ? apres.getPrenom() : null,
+                        apres != null ? apres.getCne() : null, limite, jeton),
+                this::afficherEtudiants, this::ajouterEtudiants, this::chargerEtudiants, chargeur);
+
+        btnRechercher.addActionListener(e -> recherche.lancer());
+        btnTous.addActionListener(e -> recherche.effacer());
+        actifCheckBox.addActionListener(e -> {
+            actifsSeulement = actifCheckBox.isSelected();
+            recherche.lancer();
+        });
 
         searchPanel.add(new JLabel("Recherche:"));
         searchPanel.add(rechercheField);
+        searchPanel.add(recherche.getEtiquetteResultats());
         searchPanel.add(actifCheckBox);
         searchPanel.add(btnRechercher);
+        searchPanel.add(recherche.getBoutonSuite());
         searchPanel.add(btnTous);
 
         topPanel.add(searchPanel, BorderLayout.EAST);
@@ -103,47 +122,18 @@ public class GestionEtudiantsPanel extends JPanel {
     }
 
     private void chargerEtudiants() {
-        tableModel.setRowCount(0);
-        List<Etudiant> etudiants;
-
-        if (actifCheckBox.isSelected()) {
-            etudiants = etudiantDAO.getEtudiantsActifs();
-        } else {
-            etudiants = etudiantDAO.getAllEtudiants();
-        }
-
-        for (Etudiant etudiant : etudiants) {
-            int nbEmprunts = etudiantDAO.getNombreEmpruntsEnCours(etudiant.getCne());
-            Object[] row = {
-                    etudiant.getCne(),
-                    etudiant.getNom(),
-                    etudiant.getPrenom(),
-                    etudiant.getEmail(),
-                    etudiant.getTelephone(),
-                    etudiant.getFiliere(),
-                    etudiant.isActif() ? "Oui" : "Non",
-                    nbEmprunts
-            };
-            tableModel.addRow(row);
-        }
+        boolean actifs = actifsSeulement;
+        chargeur.lancer(() -> etudiantDAO.getEtudiantsAvecEmprunts(actifs),
+                this::afficherEtudiants);
     }
 
-    private void rechercherEtudiants() {
-        String recherche = rechercheField.getText().trim();
-        if (recherche.isEmpty()) {
-            chargerEtudiants();
-            return;
-        }
-
+    private void afficherEtudiants(List<Etudiant> etudiants) {
         tableModel.setRowCount(0);
-        List<Etudiant> etudiants = etudiantDAO.rechercherEtudiants(recherche);
+        ajouterEtudiants(etudiants);
+    }
 
+    private void ajouterEtudiants(List<Etudiant> etudiants) {
         for (Etudiant etudiant : etudiants) {
-            if (actifCheckBox.isSelected() && !etudiant.isActif()) {
-                continue;
-            }
-
-            int nbEmprunts = etudiantDAO.getNombreEmpruntsEnCours(etudiant.getCne());
             Object[] row = {
                     etudiant.getCne(),
                     etudiant.getNom(),
@@ -152,7 +142,7 @@ public class GestionEtudiantsPanel extends JPanel {
                     etudiant.getTelephone(),
                     etudiant.getFiliere(),
                     etudiant.isActif() ? "Oui" : "Non",
-                    nbEmprunts
+                    etudiant.getNombreEmpruntsEnCours()
             };
             tableModel.addRow(row);
         }
@@ -230,7 +220,7 @@ public class GestionEtudiantsPanel extends JPanel {
                             "Étudiant ajouté avec succès!",
                             "Succès",
                             JOptionPane.INFORMATION_MESSAGE);
-                    chargerEtudiants();
+                    recherche.lancer();
                     dialog.dispose();
                 } else {
                     JOptionPane.showMessageDialog(dialog,
@@ -313,7 +303,7 @@ public class GestionEtudiantsPanel extends JPanel {
                         "Étudiant désactivé avec succès!",
                         "Succès",
                         JOptionPane.INFORMATION_MESSAGE);
-                chargerEtudiants();
+                recherche.lancer();
             } else {
                 JOptionPane.showMessageDialog(this,
                         "Erreur lors de la désactivation.",
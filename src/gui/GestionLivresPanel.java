@@ -15,12 +15,16 @@ import java.util.List;
  */
 public class GestionLivresPanel extends JPanel {
 
+    private static final int RESULTATS_PAR_PAGE = 50;
+
     private LivreDAO livreDAO;
     private CategorieDAO categorieDAO;
     private JTable tableLivres;
     private DefaultTableModel tableModel;
     private JTextField rechercheField;
     private JComboBox<Categorie> categorieCombo;
+    private final ChargeurArrierePlan chargeur = new ChargeurArrierePlan();
+    private RechercheInstantanee<Livre> recherche;
 
     public GestionLivresPanel() {
         livreDAO = new LivreDAO();
@@ -46,12 +50,21 @@ public class GestionLivresPanel extends JPanel {
         JButton btnRechercher = new JButton("Rechercher");
         JButton btnTous = new JButton("Tous les livres");
 
-        btnRechercher.addActionListener(e -> rechercherLivres());
-        btnTous.addActionListener(e -> chargerLivres());
+        // Recherche au fil de la saisie, par pages de RESULTATS_PAR_PAGE livres
+        recherche = new RechercheInstantanee<>(rechercheField, RESULTATS_PAR_PAGE,
+                (texte, apres, limite, jeton) -> livreDAO.rechercherLivres(texte,
+                        apres != null ? apres.getTitre() : null,
+                        apres != null ? apres.getIsbn() : null, limite, jeton),
+                this::afficherLivres, this::ajouterLivres, this::chargerLivres, chargeur);
+
+        btnRechercher.addActionListener(e -> recherche.lancer());
+        btnTous.addActionListener(e -> recherche.effacer());
 
         searchPanel.add(new JLabel("Recherche:"));
         searchPanel.add(rechercheField);
+        searchPanel.add(recherche.getEtiquetteResultats());
         searchPanel.add(btnRechercher);
+        searchPanel.add(recherche.getBoutonSuite());
         searchPanel.add(btnTous);
 
         topPanel.add(searchPanel, BorderLayout.EAST);
@@ -105,33 +118,15 @@ public class GestionLivresPanel extends JPanel {
     }
 
     private void chargerLivres() {
-        tableModel.setRowCount(0);
-        List<Livre> livres = livreDAO.getAllLivres();
-
-        for (Livre livre : livres) {
-            Object[] row = {
-                    livre.getIsbn(),
-                    livre.getTitre(),
-                    livre.getAuteur(),
-                    livre.getNomCategorie(),
-                    livre.getAnneePublication(),
-                    livre.getNombreExemplaires(),
-                    livre.getExemplairesDisponibles()
-            };
-            tableModel.addRow(row);
-        }
+        chargeur.lancer(livreDAO::getAllLivres, this::afficherLivres);
     }
 
-    private void rechercherLivres() {
-        String recherche = rechercheField.getText().trim();
-        if (recherche.isEmpty()) {
-            chargerLivres();
-            return;
-        }
-
+    private void afficherLivres(List<Livre> livres) {
         tableModel.setRowCount(0);
-        List<Livre> livres = livreDAO.rechercherLivres(recherche);
+        ajouterLivres(livres);
+    }
 
+    private void ajouterLivres(List<Livre> livres) {
         for (Livre livre : livres) {
             Object[] row = {
                     livre.getIsbn(),
@@ -144,13 +139,6 @@ public class GestionLivresPanel extends JPanel {
             };
             tableModel.addRow(row);
         }
-
-        if (livres.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                    "Aucun livre trouvé pour cette recherche.",
-                    "Résultat",
-                    JOptionPane.INFORMATION_MESSAGE);
-        }
     }
 
     private void ajouterLivre() {
@@ -231,7 +219,7 @@ public class GestionLivresPanel extends JPanel {
                             "Livre ajouté avec succès!",
                             "Succès",
                             JOptionPane.INFORMATION_MESSAGE);
-                    chargerLivres();
+                    recherche.lancer();
                     dialog.dispose();
                 } else {
                     JOptionPane.showMessageDialog(dialog,
@@ -305,7 +293,7 @@ public class GestionLivresPanel extends JPanel {
                         "Livre supprimé avec succès!",
                         "Succès",
                         JOptionPane.INFORMATION_MESSAGE);
-                chargerLivres();
+                recherche.lancer();
             } else {
                 JOptionPane.showMessageDialog(this,
                         "Erreur lors de la suppression.\nLe livre est peut-être emprunté.",
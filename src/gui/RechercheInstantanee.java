@@ -0,0 +1,189 @@
+package gui;
+
+import dao.JetonAnnulation;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Recherche au fil de la saisie dans un champ texte.
+ *
+ * La requête part quand la frappe s'interrompt ; une nouvelle saisie annule
+ * la requête en cours côté serveur. Seuls les premiers résultats sont
+ * affichés, la page suivante est préchargée pour le bouton « Plus de résultats ».
+ */
+class RechercheInstantanee<T> {
+
+    private static final int DELAI_SAISIE_MS = 300;
+
+    /**
+     * Page de résultats après l'élément donné (null pour la première page)
+     */
+    interface Source<T> {
+        List<T> rechercher(String texte, T apres, int limite, JetonAnnulation jeton);
+    }
+
+    private final JTextField champ;
+    private final int limite;
+    private final Source<T> source;
+    private final Consumer<List<T>> affichage;
+    private final Consumer<List<T>> ajout;
+    private final Runnable saisieVide;
+    private final ChargeurArrierePlan chargeur;
+    private final ChargeurArrierePlan prechargeur = new ChargeurArrierePlan();
+
+    private final Timer minuterie;
+    private final JButton btnSuite = new JButton("Plus de résultats");
+    private final JLabel lblResultats = new JLabel();
+
+    private JetonAnnulation jeton;
+    private String texte;
+    private T dernier;
+    private List<T> pageSuivante;
+    private int nombreAffiches;
+
+    /**
+     * @param affichage  remplace la liste affichée
+     * @param ajout      ajoute une page à la liste affichée
+     * @param saisieVide appelé quand le champ est vidé (liste complète)
+     * @param chargeur   chargeur de la liste du panel, partagé pour que tout
+     *                   nouveau chargement remplace la recherche en cours
+     */
+    RechercheInstantanee(JTextField champ, int limite, Source<T> source,
+                         Consumer<List<T>> affichage, Consumer<List<T>> ajout,
+                         Runnable saisieVide, ChargeurArrierePlan chargeur) {
+        this.champ = champ;
+        this.limite = limite;
+        this.source = source;
+        this.affichage = affichage;
+        this.ajout = ajout;
+        this.saisieVide = saisieVide;
+        this.chargeur = chargeur;
+
+        minuterie = new Timer(DELAI_SAISIE_MS, e -> lancer());
+        minuterie.setRepeats(false);
+
+        champ.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                minuterie.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                minuterie.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // attributs seulement
+            }
+        });
+        champ.addActionListener(e -> lancer());
+
+        btnSuite.setEnabled(false);
+        btnSuite.addActionListener(e -> afficherSuite());
+    }
+
+    JButton getBoutonSuite() {
+        return btnSuite;
+    }
+
+    JLabel getEtiquetteResultats() {
+        return lblResultats;
+    }
+
+    /**
+     * Lancer la recherche immédiatement avec le texte du champ
+     */
+    void lancer() {
+        annuler();
+
+        texte = champ.getText().trim();
+        if (texte.isEmpty()) {
+            saisieVide.run();
+            return;
+        }
+
+        JetonAnnulation jetonRecherche = new JetonAnnulation();
+        jeton = jetonRecherche;
+        String texteRecherche = texte;
+        chargeur.lancer(() -> source.rechercher(texteRecherche, null, limite, jetonRecherche), resultats -> {
+            nombreAffiches = 0;
+            affichage.accept(resultats);
+            pageAffichee(resultats);
+        });
+    }
+
+    /**
+     * Abandonner la recherche en cours et vider le champ
+     */
+    void effacer() {
+        champ.setText("");
+        lancer();
+    }
+
+    private void annuler() {
+        minuterie.stop();
+        prechargeur.annuler();
+        pageSuivante = null;
+        dernier = null;
+        btnSuite.setEnabled(false);
+        lblResultats.setText("");
+
+        if (jeton != null) {
+            // Statement.cancel() ouvre une connexion : pas sur l'EDT
+            JetonAnnulation ancien = jeton;
+            jeton = null;
+            CompletableFuture.runAsync(ancien::annuler);
+        }
+    }
+
+    private void afficherSuite() {
+        if (pageSuivante == null) {
+            return;
+        }
+        List<T> page = pageSuivante;
+        pageSuivante = null;
+        btnSuite.setEnabled(false);
+        ajout.accept(page);
+        pageAffichee(page);
+    }
+
+    private void pageAffichee(List<T> page) {
+        nombreAffiches += page.size();
+        boolean complete = page.size() == limite;
+
+        if (nombreAffiches == 0) {
+            lblResultats.setText("Aucun résultat");
+        } else {
+            lblResultats.setText(nombreAffiches + (complete ? "+" : "") + " résultat(s)");
+        }
+
+        if (complete) {
+            dernier = page.get(page.size() - 1);
+            precharger();
+        }
+    }
+
+    private void precharger() {
+        JetonAnnulation jetonRecherche = jeton;
+        String texteRecherche = texte;
+        T apres = dernier;
+        prechargeur.lancer(() -> source.rechercher(texteRecherche, apres, limite, jetonRecherche), page -> {
+            if (jetonRecherche != jeton) {
+                return;
+            }
+            if (page.isEmpty()) {
+                lblResultats.setText(nombreAffiches + " résultat(s)");
+                return;
+            }
+            pageSuivante = page;
+            btnSuite.setEnabled(true);
+        });
+    }
+}
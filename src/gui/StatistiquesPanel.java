@@ -1,20 +1,22 @@
 package gui;
 
-import dao.EmpruntDAO;
-import dao.EtudiantDAO;
-import dao.LivreDAO;
+import analyse.AnalyseEmprunts;
+import dao.CompteursStatistiques;
+import dao.StatistiquesDAO;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.List;
 
 /**
  * Panel pour afficher les statistiques de la bibliothèque
  */
 public class StatistiquesPanel extends JPanel {
 
-    private EmpruntDAO empruntDAO;
-    private EtudiantDAO etudiantDAO;
-    private LivreDAO livreDAO;
+    private CompteursStatistiques compteurs;
+    private final ChargeurArrierePlan chargeur = new ChargeurArrierePlan();
+    private final ChargeurArrierePlan chargeurAnalyse = new ChargeurArrierePlan();
 
     private JLabel lblTotalLivres;
     private JLabel lblLivresDisponibles;
@@ -23,14 +25,21 @@ public class StatistiquesPanel extends JPanel {
     private JLabel lblEtudiantsActifs;
     private JLabel lblEmpruntsEnCours;
     private JLabel lblEmpruntsEnRetard;
+    private JLabel lblEcheancesProches;
     private JLabel lblTotalPenalites;
 
+    private JLabel lblDureeMoyenne;
+    private JLabel lblTauxRetard;
+    private JLabel lblCalculAnalyse;
+    private DefaultTableModel livresModel;
+    private DefaultTableModel filieresModel;
+    private DefaultTableModel categoriesModel;
+
     public StatistiquesPanel() {
-        empruntDAO = new EmpruntDAO();
-        etudiantDAO = new EtudiantDAO();
-        livreDAO = new LivreDAO();
+        compteurs = CompteursStatistiques.getInstance();
         initializePanel();
         rafraichirStatistiques();
+        rafraichirAnalyse();
     }
 
     private void initializePanel() {
@@ -45,8 +54,7 @@ public class StatistiquesPanel extends JPanel {
         add(titlePanel, BorderLayout.NORTH);
 
         // Panel principal avec grille
-        JPanel mainPanel = new JPanel(new GridLayout(3, 1, 10, 10));
-        mainPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        JPanel mainPanel = new JPanel(new GridLayout(1, 3, 10, 10));
 
         // Section Livres
         JPanel livresPanel = createSectionPanel("📚 Statistiques des Livres");
@@ -70,17 +78,24 @@ public class StatistiquesPanel extends JPanel {
         JPanel empruntsPanel = createSectionPanel("📋 Statistiques des Emprunts");
         lblEmpruntsEnCours = new JLabel("0");
         lblEmpruntsEnRetard = new JLabel("0");
+        lblEcheancesProches = new JLabel("0");
         lblTotalPenalites = new JLabel("0.00 DH");
 
         addStatRow(empruntsPanel, "Emprunts en cours:", lblEmpruntsEnCours);
         addStatRow(empruntsPanel, "Emprunts en retard:", lblEmpruntsEnRetard);
+        addStatRow(empruntsPanel, "À rendre sous " + CompteursStatistiques.JOURS_ECHEANCE_PROCHE + " jours:",
+                lblEcheancesProches);
         addStatRow(empruntsPanel, "Total des pénalités:", lblTotalPenalites);
 
         mainPanel.add(livresPanel);
         mainPanel.add(etudiantsPanel);
         mainPanel.add(empruntsPanel);
 
-        add(mainPanel, BorderLayout.CENTER);
+        JPanel centerPanel = new JPanel(new BorderLayout(10, 10));
+        centerPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        centerPanel.add(mainPanel, BorderLayout.NORTH);
+        centerPanel.add(createAnalysePanel(), BorderLayout.CENTER);
+        add(centerPanel, BorderLayout.CENTER);
 
         // Bouton de rafraîchissement
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -88,12 +103,66 @@ public class StatistiquesPanel extends JPanel {
         btnRafraichir.setBackground(new Color(52, 152, 219));
         btnRafraichir.setForeground(Color.WHITE);
         btnRafraichir.setFont(new Font("Arial", Font.BOLD, 14));
-        btnRafraichir.addActionListener(e -> rafraichirStatistiques());
+        btnRafraichir.addActionListener(e -> {
+            chargeur.lancer(() -> {
+                compteurs.reconcilier();
+                return compteurs.getStatistiques();
+            }, this::afficherStatistiques);
+            rafraichirAnalyse();
+        });
         bottomPanel.add(btnRafraichir);
 
         add(bottomPanel, BorderLayout.SOUTH);
     }
 
+    // Section d'analyse de l'historique : indicateurs puis trois classements
+    private JPanel createAnalysePanel() {
+        JPanel analysePanel = createSectionPanel("📈 Analyse de l'historique des emprunts");
+        lblDureeMoyenne = new JLabel("-");
+        lblTauxRetard = new JLabel("-");
+        lblCalculAnalyse = new JLabel("-");
+
+        addStatRow(analysePanel, "Durée moyenne d'un emprunt:", lblDureeMoyenne);
+        addStatRow(analysePanel, "Taux de retard:", lblTauxRetard);
+        addStatRow(analysePanel, "Emprunts analysés:", lblCalculAnalyse);
+
+        livresModel = createTableModel("Titre", "Emprunts");
+        filieresModel = createTableModel("Filière", "Emprunts", "Taux de retard");
+        categoriesModel = createTableModel("Catégorie", "Emprunts", "Taux de retard");
+
+        JPanel tablesPanel = new JPanel(new GridLayout(1, 3, 10, 10));
+        tablesPanel.setBackground(Color.WHITE);
+        tablesPanel.add(createTablePanel("Livres les plus empruntés", livresModel));
+        tablesPanel.add(createTablePanel("Emprunts par filière", filieresModel));
+        tablesPanel.add(createTablePanel("Emprunts par catégorie", categoriesModel));
+        tablesPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+        analysePanel.add(tablesPanel);
+        return analysePanel;
+    }
+
+    private DefaultTableModel createTableModel(String... colonnes) {
+        return new DefaultTableModel(colonnes, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private JPanel createTablePanel(String title, DefaultTableModel model) {
+        JTable table = new JTable(model);
+        table.setRowHeight(22);
+        table.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBackground(Color.WHITE);
+        JLabel label = new JLabel(title);
+        label.setFont(new Font("Arial", Font.BOLD, 14));
+        panel.add(label, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        return panel;
+    }
+
     private JPanel createSectionPanel(String title) {
         JPanel panel = new JPanel();
         panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -130,35 +199,52 @@ public class StatistiquesPanel extends JPanel {
         panel.add(Box.createRigidArea(new Dimension(0, 5)));
     }
 
+    // Lecture des compteurs en mémoire ; la première lecture interroge la base
     public void rafraichirStatistiques() {
-        // Statistiques des livres
-        int totalLivres = 0;
-        int disponibles = 0;
-        int empruntes = 0;
-
-        var livres = livreDAO.getAllLivres();
-        for (var livre : livres) {
-            totalLivres += livre.getNombreExemplaires();
-            disponibles += livre.getExemplairesDisponibles();
+        chargeur.lancer(compteurs::getStatistiques, this::afficherStatistiques);
+    }
+
+    // Calcul sur l'instantané des emprunts ; le premier appel charge l'historique
+    public void rafraichirAnalyse() {
+        chargeurAnalyse.lancer(AnalyseEmprunts.getInstance()::analyser, this::afficherAnalyse);
+    }
+
+    private void afficherAnalyse(AnalyseEmprunts.Resultat resultat) {
+        lblDureeMoyenne.setText(String.format("%.1f jours", resultat.dureeMoyenneJours));
+        lblTauxRetard.setText(String.format("%.1f %%", resultat.getTauxRetard() * 100));
+        lblCalculAnalyse.setText(resultat.nombreEmprunts + " (" + resultat.dureeCalculMs + " ms)");
+
+        livresModel.setRowCount(0);
+        for (AnalyseEmprunts.Ligne ligne : resultat.livresPlusEmpruntes) {
+            livresModel.addRow(new Object[]{ligne.libelle, ligne.emprunts});
+        }
+        remplirRepartition(filieresModel, resultat.parFiliere);
+        remplirRepartition(categoriesModel, resultat.parCategorie);
+    }
+
+    private void remplirRepartition(DefaultTableModel model, List<AnalyseEmprunts.Ligne> lignes) {
+        model.setRowCount(0);
+        for (AnalyseEmprunts.Ligne ligne : lignes) {
+            model.addRow(new Object[]{ligne.libelle, ligne.emprunts,
+                    String.format("%.1f %%", ligne.getTauxRetard() * 100)});
         }
-        empruntes = totalLivres - disponibles;
+    }
 
-        lblTotalLivres.setText(String.valueOf(totalLivres));
-        lblLivresDisponibles.setText(String.valueOf(disponibles));
-        lblLivresEmpruntes.setText(String.valueOf(empruntes));
+    private void afficherStatistiques(StatistiquesDAO.StatistiquesBibliotheque stats) {
 
-        // Statistiques des étudiants
-        int totalEtudiants = etudiantDAO.getAllEtudiants().size();
-        int etudiantsActifs = etudiantDAO.getEtudiantsActifs().size();
+        // Statistiques des livres
+        lblTotalLivres.setText(String.valueOf(stats.totalExemplaires));
+        lblLivresDisponibles.setText(String.valueOf(stats.exemplairesDisponibles));
+        lblLivresEmpruntes.setText(String.valueOf(stats.getExemplairesEmpruntes()));
 
-        lblTotalEtudiants.setText(String.valueOf(totalEtudiants));
-        lblEtudiantsActifs.setText(String.valueOf(etudiantsActifs));
+        // Statistiques des étudiants
+        lblTotalEtudiants.setText(String.valueOf(stats.totalEtudiants));
+        lblEtudiantsActifs.setText(String.valueOf(stats.etudiantsActifs));
 
         // Statistiques des emprunts
-        EmpruntDAO.EmpruntStatistiques stats = empruntDAO.getStatistiques();
-
         lblEmpruntsEnCours.setText(String.valueOf(stats.empruntsEnCours));
         lblEmpruntsEnRetard.setText(String.valueOf(stats.empruntsEnRetard));
+        lblEcheancesProches.setText(String.valueOf(stats.empruntsAEcheanceProche));
         lblTotalPenalites.setText(String.format("%.2f DH", stats.totalPenalites));
 
         // Changer la couleur si des emprunts sont en retard
@@ -1,14 +1,26 @@
 package models;
 
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.TimeZone;
 
 public class Emprunt {
+
+    // Valeur des champs millisecondes quand la date n'est pas renseignée
+    public static final long SANS_DATE = Long.MIN_VALUE;
+
+    private static final long MILLIS_PAR_JOUR = 24L * 60 * 60 * 1000;
+    private static final TimeZone FUSEAU = TimeZone.getDefault();
+
     private int idEmprunt;
     private String isbn;
     private String cne;
-    private Date dateEmprunt;
-    private Date dateRetourPrevue;
-    private Date dateRetourEffective;
+    // Dates en millisecondes epoch ; le jour de retour prévu (epoch, fuseau
+    // local) est calculé une fois à l'affectation, pour le classement par échéance
+    private long dateEmprunt = SANS_DATE;
+    private long dateRetourPrevue = SANS_DATE;
+    private long dateRetourEffective = SANS_DATE;
+    private long jourRetourPrevu;
     private double penalite;
     private String statut; // EN_COURS, RETOURNE, EN_RETARD
 
@@ -21,12 +33,43 @@ public class Emprunt {
     public Emprunt(String isbn, String cne, Date dateEmprunt, Date dateRetourPrevue) {
         this.isbn = isbn;
         this.cne = cne;
-        this.dateEmprunt = dateEmprunt;
-        this.dateRetourPrevue = dateRetourPrevue;
+        setDateEmprunt(dateEmprunt);
+        setDateRetourPrevue(dateRetourPrevue);
         this.statut = "EN_COURS";
         this.penalite = 0.0;
     }
 
+    /**
+     * Copie, pour les caches et index qui ne rendent pas leur propre instance
+     */
+    public Emprunt(Emprunt autre) {
+        this.idEmprunt = autre.idEmprunt;
+        this.isbn = autre.isbn;
+        this.cne = autre.cne;
+        this.dateEmprunt = autre.dateEmprunt;
+        this.dateRetourPrevue = autre.dateRetourPrevue;
+        this.dateRetourEffective = autre.dateRetourEffective;
+        this.jourRetourPrevu = autre.jourRetourPrevu;
+        this.penalite = autre.penalite;
+        this.statut = autre.statut;
+        this.titreLivre = autre.titreLivre;
+        this.nomEtudiant = autre.nomEtudiant;
+    }
+
+    /**
+     * Jour courant (epoch, fuseau local), à calculer une fois pour un lot d'emprunts
+     */
+    public static long aujourdhui() {
+        return versJour(System.currentTimeMillis());
+    }
+
+    /**
+     * Jour (epoch, fuseau local) d'un instant en millisecondes, sans allocation
+     */
+    public static long versJour(long millis) {
+        return Math.floorDiv(millis + FUSEAU.getOffset(millis), MILLIS_PAR_JOUR);
+    }
+
     // Getters et Setters
     public int getIdEmprunt() { return idEmprunt; }
     public void setIdEmprunt(int idEmprunt) { this.idEmprunt = idEmprunt; }
@@ -37,16 +80,35 @@ public class Emprunt {
     public String getCne() { return cne; }
     public void setCne(String cne) { this.cne = cne; }
 
-    public Date getDateEmprunt() { return dateEmprunt; }
-    public void setDateEmprunt(Date dateEmprunt) { this.dateEmprunt = dateEmprunt; }
+    public Date getDateEmprunt() { return versDate(dateEmprunt); }
+    public void setDateEmprunt(Date dateEmprunt) { setDateEmpruntMillis(versMillis(dateEmprunt)); }
+    public long getDateEmpruntMillis() { return dateEmprunt; }
+    public void setDateEmpruntMillis(long dateEmprunt) { this.dateEmprunt = dateEmprunt; }
 
-    public Date getDateRetourPrevue() { return dateRetourPrevue; }
-    public void setDateRetourPrevue(Date dateRetourPrevue) { this.dateRetourPrevue = dateRetourPrevue; }
+    public Date getDateRetourPrevue() { return versDate(dateRetourPrevue); }
+    public void setDateRetourPrevue(Date dateRetourPrevue) { setDateRetourPrevueMillis(versMillis(dateRetourPrevue)); }
+    public long getDateRetourPrevueMillis() { return dateRetourPrevue; }
+    public void setDateRetourPrevueMillis(long dateRetourPrevue) {
+        this.dateRetourPrevue = dateRetourPrevue;
+        this.jourRetourPrevu = dateRetourPrevue != SANS_DATE ? versJour(dateRetourPrevue) : 0;
+    }
 
-    public Date getDateRetourEffective() { return dateRetourEffective; }
+    public Date getDateRetourEffective() { return versDate(dateRetourEffective); }
     public void setDateRetourEffective(Date dateRetourEffective) {
-        this.dateRetourEffective = dateRetourEffective;
+        setDateRetourEffectiveMillis(versMillis(dateRetourEffective));
     }
+    public long getDateRetourEffectiveMillis() { return dateRetourEffective; }
+    public void setDateRetourEffectiveMillis(long dateRetourEffective) { this.dateRetourEffective = dateRetourEffective; }
+
+    /**
+     * Jour (epoch) de retour prévu
+     */
+    public long getJourRetourPrevu() { return jourRetourPrevu; }
+
+    // Accès java.time (jour local)
+    public LocalDate getDateEmpruntLocale() { return versDateLocale(dateEmprunt); }
+    public LocalDate getDateRetourPrevueLocale() { return versDateLocale(dateRetourPrevue); }
+    public LocalDate getDateRetourEffectiveLocale() { return versDateLocale(dateRetourEffective); }
 
     public double getPenalite() { return penalite; }
     public void setPenalite(double penalite) { this.penalite = penalite; }
@@ -60,17 +122,42 @@ public class Emprunt {
     public String getNomEtudiant() { return nomEtudiant; }
     public void setNomEtudiant(String nomEtudiant) { this.nomEtudiant = nomEtudiant; }
 
-    public long getJoursRetard() {
-        if (dateRetourEffective != null) {
-            long diff = dateRetourEffective.getTime() - dateRetourPrevue.getTime();
-            return Math.max(0, diff / (1000 * 60 * 60 * 24));
-        } else {
-            long diff = new Date().getTime() - dateRetourPrevue.getTime();
-            return Math.max(0, diff / (1000 * 60 * 60 * 24));
+    /**
+     * Jours de retard à l'instant donné (epoch ms), ou au retour effectif :
+     * périodes entières de 24 h écoulées depuis la date de retour prévue
+     */
+    public long getJoursRetard(long maintenant) {
+        if (dateRetourPrevue == SANS_DATE) {
+            return 0;
         }
+        long fin = dateRetourEffective != SANS_DATE ? dateRetourEffective : maintenant;
+        return Math.max(0, (fin - dateRetourPrevue) / MILLIS_PAR_JOUR);
+    }
+
+    public long getJoursRetard() {
+        return getJoursRetard(System.currentTimeMillis());
+    }
+
+    /**
+     * Non rendu et au moins un jour entier de retard à l'instant donné (epoch ms)
+     */
+    public boolean estEnRetard(long maintenant) {
+        return dateRetourEffective == SANS_DATE && getJoursRetard(maintenant) > 0;
     }
 
     public boolean estEnRetard() {
-        return getJoursRetard() > 0 && dateRetourEffective == null;
+        return estEnRetard(System.currentTimeMillis());
+    }
+
+    private static Date versDate(long millis) {
+        return millis != SANS_DATE ? new Date(millis) : null;
+    }
+
+    private static long versMillis(Date date) {
+        return date != null ? date.getTime() : SANS_DATE;
+    }
+
+    private static LocalDate versDateLocale(long millis) {
+        return millis != SANS_DATE ? LocalDate.ofEpochDay(versJour(millis)) : null;
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,9 @@ public class Etudiant {
     private Date dateInscription;
     private boolean actif;
 
+    // Information supplémentaire (pour affichage)
+    private int nombreEmpruntsEnCours;
+
     public Etudiant() {}
 
     public Etudiant(String cne, String nom, String prenom, String email) {
@@ -22,6 +25,21 @@ public class Etudiant {
         this.actif = true;
     }
 
+    /**
+     * Copie, pour les caches et index qui ne rendent pas leur propre instance
+     */
+    public Etudiant(Etudiant autre) {
+        this.cne = autre.cne;
+        this.nom = autre.nom;
+        this.prenom = autre.prenom;
+        this.email = autre.email;
+        this.telephone = autre.telephone;
+        this.filiere = autre.filiere;
+        this.dateInscription = autre.dateInscription;
+        this.actif = autre.actif;
+        this.nombreEmpruntsEnCours = autre.nombreEmpruntsEnCours;
+    }
+
     // Getters et Setters
     public String getCne() { return cne; }
     public void setCne(String cne) { this.cne = cne; }
@@ -47,6 +65,11 @@ public class Etudiant {
     public boolean isActif() { return actif; }
     public void setActif(boolean actif) { this.actif = actif; }
 
+    public int getNombreEmpruntsEnCours() { return nombreEmpruntsEnCours; }
+    public void setNombreEmpruntsEnCours(int nombreEmpruntsEnCours) {
+        this.nombreEmpruntsEnCours = nombreEmpruntsEnCours;
+    }
+
     public String getNomComplet() {
         return prenom + " " + nom;
     }
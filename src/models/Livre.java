@@ -40,6 +40,19 @@ public class Livre {
         this.exemplairesDisponibles = nombreExemplaires;
     }
 
+    // Copie, pour les caches et index qui ne rendent pas leur propre instance
+    public Livre(Livre autre) {
+        this.isbn = autre.isbn;
+        this.titre = autre.titre;
+        this.auteur = autre.auteur;
+        this.idCategorie = autre.idCategorie;
+        this.nomCategorie = autre.nomCategorie;
+        this.anneePublication = autre.anneePublication;
+        this.nombreExemplaires = autre.nombreExemplaires;
+        this.exemplairesDisponibles = autre.exemplairesDisponibles;
+        this.dateAjout = autre.dateAjout;
+    }
+
     // Getters et Setters
     public String getIsbn() {
         return isbn;
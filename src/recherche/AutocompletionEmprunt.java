@@ -0,0 +1,350 @@
+package recherche;
+
+import DB.DatabaseConnection;
+import dao.EcouteurDAO;
+import dao.EtudiantDAO;
+import dao.JournalNotifications;
+import dao.LivreDAO;
+import dao.NotificationsDAO;
+import models.Etudiant;
+import models.Livre;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Complétion des CNE et des ISBN dans le dialogue d'emprunt.
+ *
+ * Deux arbres radix en mémoire : étudiants par CNE, livres par ISBN. Chaque
+ * entrée garde ce qu'il faut pour afficher l'état sans requête (nom et nombre
+ * d'emprunts en cours, titre et exemplaires disponibles). Seuls les étudiants
+ * actifs et les livres disponibles sont proposés.
+ *
+ * Tenu à jour par les notifications des DAO, et rechargé périodiquement depuis
+ * la base (étudiants, livres et stocks modifiés à d'autres postes) ; l'affichage
+ * reste indicatif, la création de l'emprunt revérifie tout en base. Les
+ * notifications reçues pendant une lecture sont rejouées ; les stocks modifiés
+ * pendant celle-ci sont relus, une variation ne pouvant pas être rejouée sans
+ * risque de la compter deux fois.
+ */
+public class AutocompletionEmprunt implements EcouteurDAO {
+
+    /**
+     * Étudiant proposé à la saisie du CNE
+     */
+    public static class SuggestionEtudiant {
+        public final String cne;
+        public volatile String nomComplet;
+        public volatile boolean actif;
+
+        SuggestionEtudiant(String cne) {
+            this.cne = cne;
+        }
+    }
+
+    /**
+     * Livre proposé à la saisie de l'ISBN
+     */
+    public static class SuggestionLivre {
+        public final String isbn;
+        public volatile String titre;
+        public final AtomicInteger exemplairesDisponibles = new AtomicInteger();
+
+        SuggestionLivre(String isbn) {
+            this.isbn = isbn;
+        }
+    }
+
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+
+    private static final AutocompletionEmprunt instance = new AutocompletionEmprunt();
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Remplacés à chaque rechargement
+    private TrieRadix<SuggestionEtudiant> etudiants = new TrieRadix<>();
+    private TrieRadix<SuggestionLivre> livres = new TrieRadix<>();
+
+    // Pendant un chargement (dont celui du démarrage) : notifications à rejouer,
+    // ISBN dont le stock est à relire (null hors chargement)
+    private final JournalNotifications journal = new JournalNotifications();
+    private Set<String> stocksARelire = new HashSet<>();
+    private boolean ecoute = false;
+    private boolean reconciliationPlanifiee = false;
+
+    private volatile boolean pret = false;
+
+    private AutocompletionEmprunt() {
+        journal.ouvrir();
+    }
+
+    public static AutocompletionEmprunt getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enregistrer l'écouteur, avant de lire étudiants et livres en base
+     */
+    public synchronized void ecouter() {
+        if (!ecoute) {
+            NotificationsDAO.ajouterEcouteur(this);
+            ecoute = true;
+        }
+    }
+
+    /**
+     * Remplir les arbres, puis rejouer les notifications reçues depuis
+     * {@link #ecouter} et relire les stocks modifiés entre-temps ; démarrer
+     * le rechargement périodique
+     */
+    public synchronized void construire(Collection<Etudiant> tousEtudiants, Collection<Livre> tousLivres) {
+        ecouter();
+        remplacer(tousEtudiants, tousLivres);
+        relireStocks();
+        pret = true;
+        if (!reconciliationPlanifiee) {
+            DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                    PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+            reconciliationPlanifiee = true;
+        }
+    }
+
+    /**
+     * Relire étudiants et livres (avec leur stock) en base et remplacer les arbres.
+     * Faux si la base n'a pas répondu : les arbres restent tels quels.
+     */
+    public synchronized boolean reconcilier() {
+        modifier(() -> {
+            journal.ouvrir();
+            stocksARelire = new HashSet<>();
+        });
+
+        List<Etudiant> tousEtudiants = new EtudiantDAO().chargerEtudiants();
+        List<Livre> tousLivres = tousEtudiants != null ? new LivreDAO().chargerLivres() : null;
+        if (tousLivres == null) {
+            // Les variations de stock ont été appliquées au fil de l'eau : rien à relire
+            modifier(() -> {
+                journal.abandonner();
+                stocksARelire = null;
+            });
+            return false;
+        }
+        remplacer(tousEtudiants, tousLivres);
+        relireStocks();
+        return true;
+    }
+
+    // Remplir de nouveaux arbres, puis rejouer les notifications reçues pendant la lecture
+    private void remplacer(Collection<Etudiant> tousEtudiants, Collection<Livre> tousLivres) {
+        verrou.writeLock().lock();
+        try {
+            etudiants = new TrieRadix<>();
+            livres = new TrieRadix<>();
+            for (Etudiant etudiant : tousEtudiants) {
+                mettreAJour(etudiant, etudiant.isActif());
+            }
+            for (Livre livre : tousLivres) {
+                mettreAJour(livre);
+            }
+            journal.rejouer();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Relire les stocks notés, jusqu'à ce qu'aucune variation n'arrive pendant la relecture
+    private void relireStocks() {
+        LivreDAO livreDAO = new LivreDAO();
+        while (true) {
+            List<String> isbns;
+            verrou.writeLock().lock();
+            try {
+                if (stocksARelire == null) {
+                    return;
+                }
+                if (stocksARelire.isEmpty()) {
+                    stocksARelire = null;
+                    return;
+                }
+                isbns = new ArrayList<>(stocksARelire);
+                stocksARelire.clear();
+            } finally {
+                verrou.writeLock().unlock();
+            }
+
+            List<Livre> relus = livreDAO.getLivresParIsbns(isbns);
+            modifier(() -> {
+                for (Livre livre : relus) {
+                    SuggestionLivre suggestion = livres.get(cle(livre.getIsbn()));
+                    if (suggestion != null) {
+                        suggestion.exemplairesDisponibles.set(livre.getExemplairesDisponibles());
+                    }
+                }
+            });
+        }
+    }
+
+    public boolean estPret() {
+        return pret;
+    }
+
+    /**
+     * Étudiants actifs dont le CNE commence par le préfixe
+     */
+    public List<SuggestionEtudiant> completerCne(String prefixe, int limite) {
+        verrou.readLock().lock();
+        try {
+            return valeurs(etudiants.completer(cle(prefixe), limite, e -> e.actif));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Livres disponibles dont l'ISBN commence par le préfixe
+     */
+    public List<SuggestionLivre> completerIsbn(String prefixe, int limite) {
+        verrou.readLock().lock();
+        try {
+            return valeurs(livres.completer(cle(prefixe), limite, l -> l.exemplairesDisponibles.get() > 0));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public SuggestionEtudiant getEtudiant(String cne) {
+        verrou.readLock().lock();
+        try {
+            return etudiants.get(cle(cne));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public SuggestionLivre getLivre(String isbn) {
+        verrou.readLock().lock();
+        try {
+            return livres.get(cle(isbn));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Clé de l'arbre : majuscules, sans espaces ni tirets
+    private static String cle(String identifiant) {
+        return identifiant.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static <V> List<V> valeurs(List<Map.Entry<String, V>> entrees) {
+        List<V> valeurs = new ArrayList<>(entrees.size());
+        for (Map.Entry<String, V> entree : entrees) {
+            valeurs.add(entree.getValue());
+        }
+        return valeurs;
+    }
+
+    // Mise à jour, appelée sous le verrou d'écriture
+
+    private SuggestionEtudiant mettreAJour(Etudiant etudiant, boolean actif) {
+        String cle = cle(etudiant.getCne());
+        SuggestionEtudiant suggestion = etudiants.get(cle);
+        if (suggestion == null) {
+            suggestion = new SuggestionEtudiant(etudiant.getCne());
+            etudiants.inserer(cle, suggestion);
+        }
+        suggestion.nomComplet = etudiant.getNomComplet();
+        suggestion.actif = actif;
+        return suggestion;
+    }
+
+    private void mettreAJour(Livre livre) {
+        String cle = cle(livre.getIsbn());
+        SuggestionLivre suggestion = livres.get(cle);
+        if (suggestion == null) {
+            suggestion = new SuggestionLivre(livre.getIsbn());
+            livres.inserer(cle, suggestion);
+        }
+        suggestion.titre = livre.getTitre();
+        suggestion.exemplairesDisponibles.set(livre.getExemplairesDisponibles());
+    }
+
+    private void modifier(Runnable modification) {
+        verrou.writeLock().lock();
+        try {
+            modification.run();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Appliquer la notification, et la noter tant que les arbres ne sont pas remplis
+    private void appliquer(Runnable notification) {
+        modifier(() -> journal.appliquer(notification));
+    }
+
+    // Écouteur des DAO
+
+    @Override
+    public void livreAjoute(Livre livre) {
+        appliquer(() -> mettreAJour(livre));
+    }
+
+    @Override
+    public void livreModifie(Livre livre) {
+        appliquer(() -> mettreAJour(livre));
+    }
+
+    @Override
+    public void livreSupprime(String isbn) {
+        appliquer(() -> livres.supprimer(cle(isbn)));
+    }
+
+    @Override
+    public void disponibiliteModifiee(String isbn, int changement) {
+        modifier(() -> {
+            SuggestionLivre livre = livres.get(cle(isbn));
+            if (livre != null) {
+                livre.exemplairesDisponibles.addAndGet(changement);
+            }
+            // Pendant un chargement, la variation peut précéder ou suivre la lecture : stock relu après
+            if (stocksARelire != null) {
+                stocksARelire.add(isbn);
+            }
+        });
+    }
+
+    @Override
+    public void etudiantAjoute(Etudiant etudiant) {
+        // Un nouvel étudiant est actif (valeur par défaut de la table)
+        appliquer(() -> mettreAJour(etudiant, true));
+    }
+
+    @Override
+    public void etudiantModifie(Etudiant etudiant) {
+        appliquer(() -> mettreAJour(etudiant, etudiant.isActif()));
+    }
+
+    @Override
+    public void etudiantDesactive(String cne) {
+        appliquer(() -> {
+            SuggestionEtudiant etudiant = etudiants.get(cle(cne));
+            if (etudiant != null) {
+                etudiant.actif = false;
+            }
+        });
+    }
+
+    @Override
+    public void etudiantSupprime(String cne) {
+        appliquer(() -> etudiants.supprimer(cle(cne)));
+    }
+}
@@ -0,0 +1,357 @@
+package recherche;
+
+import DB.DatabaseConnection;
+import dao.EcouteurDAO;
+import dao.EtudiantDAO;
+import dao.JournalNotifications;
+import dao.NotificationsDAO;
+import models.Etudiant;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index de trigrammes pour la recherche d'étudiants par sous-chaîne.
+ *
+ * Le nom, le prénom, le CNE, l'email et la filière de chaque étudiant sont
+ * normalisés (minuscules, sans accents) et découpés en trigrammes ; chaque
+ * trigramme renvoie à la liste triée des étudiants qui le contiennent. Une
+ * recherche intersecte les listes des trigrammes de la requête, en commençant
+ * par la plus courte, puis vérifie la sous-chaîne sur les seuls candidats.
+ *
+ * L'index connaît aussi l'ordre d'affichage (nom, prénom, CNE) et le statut
+ * actif, pour rendre directement une page de CNE triés.
+ *
+ * Tenu à jour par les notifications d'EtudiantDAO, et rechargé périodiquement
+ * depuis la base pour les étudiants ajoutés, modifiés, désactivés ou supprimés
+ * ailleurs ; les notifications reçues pendant la lecture sont rejouées.
+ */
+public class IndexEtudiants implements EcouteurDAO {
+
+    private static final char SEPARATEUR = '\u0000';
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+
+    private static final IndexEtudiants instance = new IndexEtudiants();
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Étudiants, par identifiant interne ; cne null pour un étudiant supprimé
+    private final List<String> cnes = new ArrayList<>();
+    private final List<String> textes = new ArrayList<>();
+    private final List<String> clesTri = new ArrayList<>();
+    private final BitSet actifs = new BitSet();
+    private final BitSet presents = new BitSet();
+    private final Map<String, Integer> idParCne = new HashMap<>();
+
+    // Trigramme (trois caractères codés dans un long) -> étudiants
+    private final Map<Long, ListeEntiers> postings = new HashMap<>();
+
+    // Notifications reçues pendant un chargement (dont celui du démarrage), rejouées sur son résultat
+    private final JournalNotifications journal = new JournalNotifications();
+    private boolean ecoute = false;
+    private boolean reconciliationPlanifiee = false;
+
+    private volatile boolean pret = false;
+
+    private IndexEtudiants() {
+        journal.ouvrir();
+    }
+
+    public static IndexEtudiants getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enregistrer l'écouteur, avant de lire les étudiants en base : une
+     * modification faite pendant la lecture est notée puis rejouée.
+     */
+    public synchronized void ecouter() {
+        if (!ecoute) {
+            NotificationsDAO.ajouterEcouteur(this);
+            ecoute = true;
+        }
+    }
+
+    /**
+     * Indexer tous les étudiants et démarrer le rechargement périodique.
+     * L'écouteur doit avoir été enregistré avant la lecture ({@link #ecouter}) ;
+     * sinon il l'est ici.
+     */
+    public synchronized void construire(Collection<Etudiant> etudiants) {
+        ecouter();
+        remplacer(etudiants);
+        if (!reconciliationPlanifiee) {
+            DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                    PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+            reconciliationPlanifiee = true;
+        }
+    }
+
+    /**
+     * Relire les étudiants en base et remplacer le contenu de l'index.
+     * Faux si la base n'a pas répondu : l'index reste tel quel.
+     */
+    public synchronized boolean reconcilier() {
+        verrou.writeLock().lock();
+        try {
+            journal.ouvrir();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        List<Etudiant> etudiants = new EtudiantDAO().chargerEtudiants();
+        if (etudiants == null) {
+            verrou.writeLock().lock();
+            try {
+                journal.abandonner();
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            return false;
+        }
+        remplacer(etudiants);
+        return true;
+    }
+
+    // Vider l'index, indexer les étudiants lus puis rejouer les notifications reçues pendant la lecture
+    private void remplacer(Collection<Etudiant> etudiants) {
+        verrou.writeLock().lock();
+        try {
+            cnes.clear();
+            textes.clear();
+            clesTri.clear();
+            actifs.clear();
+            presents.clear();
+            idParCne.clear();
+            postings.clear();
+            for (Etudiant etudiant : etudiants) {
+                indexer(etudiant, etudiant.isActif());
+            }
+            journal.rejouer();
+            pret = true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public boolean estPret() {
+        return pret;
+    }
+
+    public int getNombreEtudiants() {
+        verrou.readLock().lock();
+        try {
+            return idParCne.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public int getNombreTrigrammes() {
+        verrou.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * CNE des étudiants dont un des champs contient la recherche, triés par
+     * nom, prénom, CNE, en commençant après l'étudiant donné (apresCne = null
+     * pour la première page).
+     */
+    public List<String> rechercher(String recherche, boolean actifsSeulement,
+                                   String apresNom, String apresPrenom, String apresCne, int limite) {
+        String motif = NormalisationTexte.replier(recherche.trim());
+        String apres = apresCne != null ? cleTri(apresNom, apresPrenom, apresCne) : null;
+
+        verrou.readLock().lock();
+        try {
+            BitSet candidats = candidats(motif);
+            if (actifsSeulement) {
+                candidats.and(actifs);
+            }
+
+            // Sélection des « limite » premiers après le curseur ; tête du tas = dernier retenu
+            Comparator<Integer> ordre = Comparator.comparing(clesTri::get);
+            PriorityQueue<Integer> premiers = new PriorityQueue<>(Math.min(limite, 1024) + 1, ordre.reversed());
+            for (int id = candidats.nextSetBit(0); id >= 0; id = candidats.nextSetBit(id + 1)) {
+                String cle = clesTri.get(id);
+                if (apres != null && cle.compareTo(apres) <= 0) {
+                    continue;
+                }
+                if (premiers.size() < limite) {
+                    premiers.add(id);
+                } else if (cle.compareTo(clesTri.get(premiers.peek())) < 0) {
+                    premiers.poll();
+                    premiers.add(id);
+                }
+            }
+
+            List<Integer> ids = new ArrayList<>(premiers);
+            ids.sort(ordre);
+            List<String> resultat = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                resultat.add(cnes.get(id));
+            }
+            return resultat;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private BitSet candidats(String motif) {
+        BitSet resultat = new BitSet();
+
+        if (motif.length() < 3) {
+            // Trop court pour un trigramme : parcours de tous les textes
+            for (int id = presents.nextSetBit(0); id >= 0; id = presents.nextSetBit(id + 1)) {
+                if (textes.get(id).contains(motif)) {
+                    resultat.set(id);
+                }
+            }
+            return resultat;
+        }
+
+        // Listes des trigrammes de la requête, la plus courte d'abord
+        List<ListeEntiers> listes = new ArrayList<>();
+        for (int i = 0; i + 3 <= motif.length(); i++) {
+            ListeEntiers liste = postings.get(trigramme(motif, i));
+            if (liste == null) {
+                return resultat;
+            }
+            listes.add(liste);
+        }
+        listes.sort(Comparator.comparingInt(ListeEntiers::taille));
+
+        ListeEntiers intersection = listes.get(0);
+        for (int i = 1; i < listes.size() && !intersection.estVide(); i++) {
+            intersection = intersection.intersection(listes.get(i));
+        }
+
+        // Les trigrammes peuvent être présents sans former la sous-chaîne
+        for (int i = 0; i < intersection.taille(); i++) {
+            int id = intersection.get(i);
+            if (motif.length() == 3 || textes.get(id).contains(motif)) {
+                resultat.set(id);
+            }
+        }
+        return resultat;
+    }
+
+    private static long trigramme(String texte, int debut) {
+        return ((long) texte.charAt(debut) << 32)
+                | ((long) texte.charAt(debut + 1) << 16)
+                | texte.charAt(debut + 2);
+    }
+
+    private static String cleTri(String nom, String prenom, String cne) {
+        return NormalisationTexte.replier(nom) + SEPARATEUR
+                + NormalisationTexte.replier(prenom) + SEPARATEUR + cne;
+    }
+
+    // Mise à jour, appelée sous le verrou d'écriture
+
+    private void indexer(Etudiant etudiant, boolean actif) {
+        Integer existant = idParCne.get(etudiant.getCne());
+        int id;
+        if (existant != null) {
+            id = existant;
+            retirerTrigrammes(id);
+        } else {
+            id = cnes.size();
+            cnes.add(etudiant.getCne());
+            textes.add("");
+            clesTri.add("");
+            idParCne.put(etudiant.getCne(), id);
+        }
+
+        String texte = String.join(String.valueOf(SEPARATEUR),
+                NormalisationTexte.replier(etudiant.getNom()),
+                NormalisationTexte.replier(etudiant.getPrenom()),
+                NormalisationTexte.replier(etudiant.getCne()),
+                NormalisationTexte.replier(etudiant.getEmail()),
+                NormalisationTexte.replier(etudiant.getFiliere()));
+        textes.set(id, texte);
+        clesTri.set(id, cleTri(etudiant.getNom(), etudiant.getPrenom(), etudiant.getCne()));
+        actifs.set(id, actif);
+        presents.set(id);
+
+        for (int i = 0; i + 3 <= texte.length(); i++) {
+            postings.computeIfAbsent(trigramme(texte, i), t -> new ListeEntiers()).ajouter(id);
+        }
+    }
+
+    private void desindexer(String cne) {
+        Integer id = idParCne.remove(cne);
+        if (id == null) {
+            return;
+        }
+        retirerTrigrammes(id);
+        // L'identifiant n'est pas réutilisé : l'emplacement reste vide
+        cnes.set(id, null);
+        textes.set(id, "");
+        clesTri.set(id, "");
+        actifs.clear(id);
+        presents.clear(id);
+    }
+
+    private void retirerTrigrammes(int id) {
+        String texte = textes.get(id);
+        for (int i = 0; i + 3 <= texte.length(); i++) {
+            long trigramme = trigramme(texte, i);
+            ListeEntiers liste = postings.get(trigramme);
+            if (liste != null && liste.retirer(id) && liste.estVide()) {
+                postings.remove(trigramme);
+            }
+        }
+    }
+
+    // Écouteur des DAO
+
+    // Appliquer la notification, et la noter tant que l'index n'est pas construit
+    private void appliquer(Runnable notification) {
+        verrou.writeLock().lock();
+        try {
+            journal.appliquer(notification);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void etudiantAjoute(Etudiant etudiant) {
+        // Un nouvel étudiant est actif (valeur par défaut de la table)
+        appliquer(() -> indexer(etudiant, true));
+    }
+
+    @Override
+    public void etudiantModifie(Etudiant etudiant) {
+        appliquer(() -> indexer(etudiant, etudiant.isActif()));
+    }
+
+    @Override
+    public void etudiantDesactive(String cne) {
+        appliquer(() -> {
+            Integer id = idParCne.get(cne);
+            if (id != null) {
+                actifs.clear(id);
+            }
+        });
+    }
+
+    @Override
+    public void etudiantSupprime(String cne) {
+        appliquer(() -> desindexer(cne));
+    }
+}
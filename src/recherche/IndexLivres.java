@@ -0,0 +1,434 @@
+package recherche;
+
+import DB.DatabaseConnection;
+import dao.EcouteurDAO;
+import dao.JournalNotifications;
+import dao.LivreDAO;
+import dao.NotificationsDAO;
+import models.Livre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire des titres et auteurs du catalogue.
+ *
+ * Chaque mot (normalisé, sans accents) renvoie à la liste triée des livres
+ * qui le contiennent. Une requête est découpée de la même façon ; chaque mot
+ * de la requête est un préfixe (« hist » trouve « histoire »), et un livre
+ * doit correspondre à tous les mots. Les résultats sont classés par
+ * pertinence : mot exact avant préfixe, titre avant auteur.
+ *
+ * Construit au démarrage, puis tenu à jour par les notifications de LivreDAO.
+ * Rechargé périodiquement depuis la base pour les livres ajoutés, modifiés ou
+ * supprimés ailleurs (autre poste, hors de l'application) ; les notifications
+ * reçues pendant la lecture sont rejouées sur le catalogue relu.
+ */
+public class IndexLivres implements EcouteurDAO {
+
+    // Poids d'un mot de la requête selon l'endroit où il est trouvé
+    private static final int SCORE_TITRE_EXACT = 6;
+    private static final int SCORE_TITRE_PREFIXE = 4;
+    private static final int SCORE_AUTEUR_EXACT = 3;
+    private static final int SCORE_AUTEUR_PREFIXE = 2;
+    private static final int SCORE_ISBN = 20;
+
+    private static final long PERIODE_RECONCILIATION_MINUTES = 5;
+
+    private static final IndexLivres instance = new IndexLivres();
+
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Documents, par identifiant interne ; isbn null pour un livre supprimé
+    private final List<String> isbns = new ArrayList<>();
+    private final List<String> titres = new ArrayList<>();
+    private final List<String[]> motsTitre = new ArrayList<>();
+    private final List<String[]> motsAuteur = new ArrayList<>();
+    private final Map<String, Integer> idParIsbn = new HashMap<>();
+
+    // Mot -> livres qui le contiennent, par champ ; ISBN normalisé -> livre
+    private final TreeMap<String, ListeEntiers> postingsTitre = new TreeMap<>();
+    private final TreeMap<String, ListeEntiers> postingsAuteur = new TreeMap<>();
+    private final TreeMap<String, Integer> isbnsTries = new TreeMap<>();
+
+    // Notifications reçues pendant un chargement (dont celui du démarrage), rejouées sur son résultat
+    private final JournalNotifications journal = new JournalNotifications();
+    private boolean ecoute = false;
+    private boolean reconciliationPlanifiee = false;
+
+    private volatile boolean pret = false;
+
+    private IndexLivres() {
+        journal.ouvrir();
+    }
+
+    public static IndexLivres getInstance() {
+        return instance;
+    }
+
+    /**
+     * Enregistrer l'écouteur, avant de lire le catalogue en base : une
+     * modification faite pendant la lecture est notée puis rejouée.
+     */
+    public synchronized void ecouter() {
+        if (!ecoute) {
+            NotificationsDAO.ajouterEcouteur(this);
+            ecoute = true;
+        }
+    }
+
+    /**
+     * Indexer tout le catalogue et démarrer le rechargement périodique.
+     * L'écouteur doit avoir été enregistré avant la lecture ({@link #ecouter}) ;
+     * sinon il l'est ici.
+     */
+    public synchronized void construire(Collection<Livre> livres) {
+        ecouter();
+        remplacer(livres);
+        if (!reconciliationPlanifiee) {
+            DatabaseConnection.getPlanificateur().scheduleWithFixedDelay(this::reconcilier,
+                    PERIODE_RECONCILIATION_MINUTES, PERIODE_RECONCILIATION_MINUTES, TimeUnit.MINUTES);
+            reconciliationPlanifiee = true;
+        }
+    }
+
+    /**
+     * Relire le catalogue en base et remplacer le contenu de l'index.
+     * Faux si la base n'a pas répondu : l'index reste tel quel.
+     */
+    public synchronized boolean reconcilier() {
+        verrou.writeLock().lock();
+        try {
+            journal.ouvrir();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        List<Livre> livres = new LivreDAO().chargerLivres();
+        if (livres == null) {
+            verrou.writeLock().lock();
+            try {
+                journal.abandonner();
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            return false;
+        }
+        remplacer(livres);
+        return true;
+    }
+
+    // Vider l'index, indexer les livres lus puis rejouer les notifications reçues pendant la lecture
+    private void remplacer(Collection<Livre> livres) {
+        verrou.writeLock().lock();
+        try {
+            isbns.clear();
+            titres.clear();
+            motsTitre.clear();
+            motsAuteur.clear();
+            idParIsbn.clear();
+            postingsTitre.clear();
+            postingsAuteur.clear();
+            isbnsTries.clear();
+            for (Livre livre : livres) {
+                indexer(livre);
+            }
+            journal.rejouer();
+            pret = true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public boolean estPret() {
+        return pret;
+    }
+
+    public int getNombreLivres() {
+        verrou.readLock().lock();
+        try {
+            return idParIsbn.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * ISBN des livres correspondant à la requête, du plus pertinent au moins
+     * pertinent, en commençant après apresIsbn (null pour le début). Seuls les
+     * « limite » premiers sont classés ; les autres candidats sont écartés au fil de l'eau.
+     *
+     * Les candidats viennent du mot le plus rare de la requête (le moins de
+     * livres sous son préfixe) ; les autres mots sont vérifiés sur les seuls
+     * mots de ces livres. Le travail suit donc la taille du plus petit ensemble,
+     * pas celle du catalogue.
+     */
+    public List<String> rechercher(String requete, String apresIsbn, int limite) {
+        List<String> mots = NormalisationTexte.decouper(requete);
+        String isbnRequete = normaliserIsbn(requete);
+
+        verrou.readLock().lock();
+        try {
+            int apres = -1;
+            if (apresIsbn != null) {
+                Integer id = idParIsbn.get(apresIsbn);
+                if (id == null) {
+                    // Curseur supprimé entre deux pages : rien de fiable à suivre
+                    return new ArrayList<>();
+                }
+                apres = id;
+            }
+
+            String plusRare = null;
+            int livresPlusRare = 0;
+            for (String mot : mots) {
+                int livres = compter(prefixe(postingsTitre, mot)) + compter(prefixe(postingsAuteur, mot));
+                if (plusRare == null || livres < livresPlusRare) {
+                    plusRare = mot;
+                    livresPlusRare = livres;
+                }
+            }
+
+            // Saisie d'un ISBN (éventuellement partiel, avec tirets)
+            int[] parIsbn = new int[0];
+            if (!isbnRequete.isEmpty()) {
+                SortedMap<String, Integer> isbnsTrouves = prefixe(isbnsTries, isbnRequete);
+                parIsbn = new int[isbnsTrouves.size()];
+                int k = 0;
+                for (int id : isbnsTrouves.values()) {
+                    parIsbn[k++] = id;
+                }
+                Arrays.sort(parIsbn);
+            }
+
+            // Candidats triés et sans doublon : mot le plus rare, ISBN, curseur
+            int[] ids = new int[livresPlusRare + parIsbn.length + 1];
+            int nombre = 0;
+            if (plusRare != null) {
+                nombre = copier(prefixe(postingsTitre, plusRare).values(), ids, nombre);
+                nombre = copier(prefixe(postingsAuteur, plusRare).values(), ids, nombre);
+            }
+            System.arraycopy(parIsbn, 0, ids, nombre, parIsbn.length);
+            nombre += parIsbn.length;
+            if (apres >= 0) {
+                ids[nombre++] = apres;
+            }
+            nombre = trierSansDoublons(ids, nombre);
+
+            // Score sur les mots du titre et de l'auteur ; un livre trouvé par le
+            // texte doit correspondre à tous les mots. Tableaux compactés sur place.
+            int[] scores = new int[nombre];
+            int retenus = 0;
+            for (int k = 0; k < nombre; k++) {
+                int id = ids[k];
+                boolean trouveParIsbn = Arrays.binarySearch(parIsbn, id) >= 0;
+                int score = trouveParIsbn ? SCORE_ISBN : 0;
+                boolean tousLesMots = true;
+                for (String mot : mots) {
+                    int scoreMot = scorer(motsTitre.get(id), mot, SCORE_TITRE_EXACT, SCORE_TITRE_PREFIXE);
+                    if (scoreMot == 0) {
+                        scoreMot = scorer(motsAuteur.get(id), mot, SCORE_AUTEUR_EXACT, SCORE_AUTEUR_PREFIXE);
+                    }
+                    if (scoreMot == 0) {
+                        tousLesMots = false;
+                        if (!trouveParIsbn && id != apres) {
+                            break;
+                        }
+                    }
+                    score += scoreMot;
+                }
+                if (tousLesMots || trouveParIsbn || id == apres) {
+                    ids[retenus] = id;
+                    scores[retenus] = score;
+                    retenus++;
+                }
+            }
+
+            // Ordre de classement des positions : score décroissant, puis titre, puis ISBN
+            Comparator<Integer> ordre = (a, b) -> {
+                int c = Integer.compare(scores[b], scores[a]);
+                if (c != 0) {
+                    return c;
+                }
+                c = titres.get(ids[a]).compareTo(titres.get(ids[b]));
+                return c != 0 ? c : isbns.get(ids[a]).compareTo(isbns.get(ids[b]));
+            };
+            int positionApres = apres >= 0 ? Arrays.binarySearch(ids, 0, retenus, apres) : -1;
+
+            // Sélection des « limite » premiers après le curseur, sans trier
+            // tous les candidats ; la tête du tas est le moins bien classé retenu
+            PriorityQueue<Integer> meilleurs = new PriorityQueue<>(Math.min(limite, 1024) + 1, ordre.reversed());
+            for (int k = 0; k < retenus; k++) {
+                if (positionApres >= 0 && ordre.compare(k, positionApres) <= 0) {
+                    continue;
+                }
+                if (meilleurs.size() < limite) {
+                    meilleurs.add(k);
+                } else if (ordre.compare(k, meilleurs.peek()) < 0) {
+                    meilleurs.poll();
+                    meilleurs.add(k);
+                }
+            }
+
+            List<Integer> positions = new ArrayList<>(meilleurs);
+            positions.sort(ordre);
+            List<String> resultat = new ArrayList<>(positions.size());
+            for (int k : positions) {
+                resultat.add(isbns.get(ids[k]));
+            }
+            return resultat;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Score d'un mot de la requête dans les mots d'un champ : exact, préfixe ou 0
+    private static int scorer(String[] motsChamp, String mot, int exact, int prefixe) {
+        int score = 0;
+        for (String motChamp : motsChamp) {
+            if (motChamp.equals(mot)) {
+                return exact;
+            }
+            if (score == 0 && motChamp.startsWith(mot)) {
+                score = prefixe;
+            }
+        }
+        return score;
+    }
+
+    private static int compter(SortedMap<String, ListeEntiers> listes) {
+        int total = 0;
+        for (ListeEntiers liste : listes.values()) {
+            total += liste.taille();
+        }
+        return total;
+    }
+
+    private static int copier(Collection<ListeEntiers> listes, int[] cible, int debut) {
+        int position = debut;
+        for (ListeEntiers liste : listes) {
+            for (int i = 0; i < liste.taille(); i++) {
+                cible[position++] = liste.get(i);
+            }
+        }
+        return position;
+    }
+
+    // Trier les « nombre » premières valeurs et retirer les doublons ; rend le nombre restant
+    private static int trierSansDoublons(int[] valeurs, int nombre) {
+        Arrays.sort(valeurs, 0, nombre);
+        int distincts = 0;
+        for (int i = 0; i < nombre; i++) {
+            if (distincts == 0 || valeurs[distincts - 1] != valeurs[i]) {
+                valeurs[distincts++] = valeurs[i];
+            }
+        }
+        return distincts;
+    }
+
+    private static <V> SortedMap<String, V> prefixe(TreeMap<String, V> map, String prefixe) {
+        return map.subMap(prefixe, prefixe + Character.MAX_VALUE);
+    }
+
+    private static String normaliserIsbn(String texte) {
+        return texte == null ? "" : texte.replaceAll("[\\s-]", "").toLowerCase();
+    }
+
+    // Mise à jour, appelée sous le verrou d'écriture
+
+    private void indexer(Livre livre) {
+        Integer existant = idParIsbn.get(livre.getIsbn());
+        int id;
+        if (existant != null) {
+            id = existant;
+            retirerMots(id);
+        } else {
+            id = isbns.size();
+            isbns.add(livre.getIsbn());
+            titres.add("");
+            motsTitre.add(new String[0]);
+            motsAuteur.add(new String[0]);
+            idParIsbn.put(livre.getIsbn(), id);
+            isbnsTries.put(normaliserIsbn(livre.getIsbn()), id);
+        }
+
+        String[] titre = NormalisationTexte.decouper(livre.getTitre()).toArray(new String[0]);
+        String[] auteur = NormalisationTexte.decouper(livre.getAuteur()).toArray(new String[0]);
+        titres.set(id, NormalisationTexte.replier(livre.getTitre()));
+        motsTitre.set(id, titre);
+        motsAuteur.set(id, auteur);
+
+        for (String mot : titre) {
+            postingsTitre.computeIfAbsent(mot, m -> new ListeEntiers()).ajouter(id);
+        }
+        for (String mot : auteur) {
+            postingsAuteur.computeIfAbsent(mot, m -> new ListeEntiers()).ajouter(id);
+        }
+    }
+
+    private void desindexer(String isbn) {
+        Integer id = idParIsbn.remove(isbn);
+        if (id == null) {
+            return;
+        }
+        retirerMots(id);
+        isbnsTries.remove(normaliserIsbn(isbn));
+        // L'identifiant n'est pas réutilisé : l'emplacement reste vide
+        isbns.set(id, null);
+        titres.set(id, null);
+        motsTitre.set(id, new String[0]);
+        motsAuteur.set(id, new String[0]);
+    }
+
+    private void retirerMots(int id) {
+        retirerMots(postingsTitre, id, motsTitre.get(id));
+        retirerMots(postingsAuteur, id, motsAuteur.get(id));
+    }
+
+    private static void retirerMots(TreeMap<String, ListeEntiers> postings, int id, String[] mots) {
+        for (String mot : mots) {
+            ListeEntiers liste = postings.get(mot);
+            if (liste != null && liste.retirer(id) && liste.estVide()) {
+                postings.remove(mot);
+            }
+        }
+    }
+
+    // Écouteur des DAO
+
+    // Appliquer la notification, et la noter tant que l'index n'est pas construit
+    private void appliquer(Runnable notification) {
+        verrou.writeLock().lock();
+        try {
+            journal.appliquer(notification);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void livreAjoute(Livre livre) {
+        appliquer(() -> indexer(livre));
+    }
+
+    @Override
+    public void livreModifie(Livre livre) {
+        livreAjoute(livre);
+    }
+
+    @Override
+    public void livreSupprime(String isbn) {
+        appliquer(() -> desindexer(isbn));
+    }
+}
@@ -0,0 +1,111 @@
+package recherche;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Liste triée d'entiers distincts, stockée dans un tableau de int.
+ *
+ * Sert de liste de documents (posting list) dans les index en mémoire :
+ * les identifiants sont le plus souvent ajoutés dans l'ordre croissant,
+ * ce qui rend l'ajout en fin de tableau le cas courant.
+ */
+public class ListeEntiers {
+
+    private int[] valeurs;
+    private int taille = 0;
+
+    public ListeEntiers() {
+        valeurs = new int[4];
+    }
+
+    /**
+     * Ajouter une valeur ; sans effet si elle est déjà présente
+     */
+    public void ajouter(int valeur) {
+        if (taille == 0 || valeurs[taille - 1] < valeur) {
+            agrandirSiPlein();
+            valeurs[taille++] = valeur;
+            return;
+        }
+
+        int position = Arrays.binarySearch(valeurs, 0, taille, valeur);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        agrandirSiPlein();
+        System.arraycopy(valeurs, position, valeurs, position + 1, taille - position);
+        valeurs[position] = valeur;
+        taille++;
+    }
+
+    /**
+     * Retirer une valeur ; faux si elle était absente
+     */
+    public boolean retirer(int valeur) {
+        int position = Arrays.binarySearch(valeurs, 0, taille, valeur);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(valeurs, position + 1, valeurs, position, taille - position - 1);
+        taille--;
+        return true;
+    }
+
+    public boolean contient(int valeur) {
+        return Arrays.binarySearch(valeurs, 0, taille, valeur) >= 0;
+    }
+
+    public int get(int index) {
+        return valeurs[index];
+    }
+
+    public int taille() {
+        return taille;
+    }
+
+    public boolean estVide() {
+        return taille == 0;
+    }
+
+    /**
+     * Positionner dans le BitSet les bits de toutes les valeurs de la liste
+     */
+    public void ajouterA(BitSet bits) {
+        for (int i = 0; i < taille; i++) {
+            bits.set(valeurs[i]);
+        }
+    }
+
+    /**
+     * Intersection de deux listes, par fusion des tableaux triés
+     */
+    public ListeEntiers intersection(ListeEntiers autre) {
+        ListeEntiers resultat = new ListeEntiers();
+        resultat.valeurs = new int[Math.max(1, Math.min(taille, autre.taille))];
+
+        int i = 0;
+        int j = 0;
+        while (i < taille && j < autre.taille) {
+            int a = valeurs[i];
+            int b = autre.valeurs[j];
+            if (a == b) {
+                resultat.valeurs[resultat.taille++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return resultat;
+    }
+
+    private void agrandirSiPlein() {
+        if (taille == valeurs.length) {
+            valeurs = Arrays.copyOf(valeurs, valeurs.length * 2);
+        }
+    }
+}
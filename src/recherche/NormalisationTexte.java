@@ -0,0 +1,74 @@
+package recherche;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation du texte indexé et des requêtes : minuscules, accents
+ * retirés (« Écoles » et « ecoles » sont le même terme), découpage en mots.
+ */
+public final class NormalisationTexte {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+
+    // Repli précalculé des caractères latins courants (jusqu'à Latin étendu A),
+    // pour éviter Normalizer sur les noms et titres français
+    private static final int TAILLE_TABLE = 0x180;
+    private static final char[] TABLE = new char[TAILLE_TABLE];
+
+    static {
+        for (char c = 0; c < TAILLE_TABLE; c++) {
+            String replie = replierLent(String.valueOf(c));
+            TABLE[c] = replie.length() == 1 ? replie.charAt(0) : 0;
+        }
+    }
+
+    private NormalisationTexte() {}
+
+    /**
+     * Texte en minuscules sans accents
+     */
+    public static String replier(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        char[] resultat = new char[texte.length()];
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            char replie = c < TAILLE_TABLE ? TABLE[c] : 0;
+            if (replie == 0) {
+                return replierLent(texte);
+            }
+            resultat[i] = replie;
+        }
+        return new String(resultat);
+    }
+
+    private static String replierLent(String texte) {
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Mots normalisés du texte (suites de lettres et de chiffres)
+     */
+    public static List<String> decouper(String texte) {
+        List<String> mots = new ArrayList<>();
+        String replie = replier(texte);
+
+        int debut = -1;
+        for (int i = 0; i <= replie.length(); i++) {
+            boolean lettre = i < replie.length() && Character.isLetterOrDigit(replie.charAt(i));
+            if (lettre && debut < 0) {
+                debut = i;
+            } else if (!lettre && debut >= 0) {
+                mots.add(replie.substring(debut, i));
+                debut = -1;
+            }
+        }
+        return mots;
+    }
+}
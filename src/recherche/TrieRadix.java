@@ -0,0 +1,191 @@
+package recherche;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Arbre radix (trie compressé) associant des clés texte à des valeurs.
+ *
+ * Les arêtes portent des fragments de clé : une suite de clés qui partagent
+ * un long préfixe (CNE, ISBN) occupe peu de nœuds. La complétion descend le
+ * long du préfixe puis parcourt le sous-arbre dans l'ordre lexicographique,
+ * en s'arrêtant dès que la limite est atteinte.
+ *
+ * Non synchronisé : l'appelant protège les accès concurrents.
+ */
+public class TrieRadix<V> {
+
+    private static class Noeud<V> {
+        String etiquette;
+        V valeur;
+        final TreeMap<Character, Noeud<V>> enfants = new TreeMap<>();
+
+        Noeud(String etiquette) {
+            this.etiquette = etiquette;
+        }
+    }
+
+    private final Noeud<V> racine = new Noeud<>("");
+    private int taille = 0;
+
+    public int taille() {
+        return taille;
+    }
+
+    public V get(String cle) {
+        Noeud<V> noeud = racine;
+        int i = 0;
+        while (i < cle.length()) {
+            Noeud<V> enfant = noeud.enfants.get(cle.charAt(i));
+            if (enfant == null || !cle.startsWith(enfant.etiquette, i)) {
+                return null;
+            }
+            i += enfant.etiquette.length();
+            noeud = enfant;
+        }
+        return noeud.valeur;
+    }
+
+    /**
+     * Associer la valeur à la clé (remplace la valeur existante)
+     */
+    public void inserer(String cle, V valeur) {
+        Noeud<V> noeud = racine;
+        int i = 0;
+        while (i < cle.length()) {
+            Noeud<V> enfant = noeud.enfants.get(cle.charAt(i));
+            if (enfant == null) {
+                Noeud<V> feuille = new Noeud<>(cle.substring(i));
+                feuille.valeur = valeur;
+                noeud.enfants.put(cle.charAt(i), feuille);
+                taille++;
+                return;
+            }
+
+            int commun = prefixeCommun(enfant.etiquette, cle, i);
+            if (commun < enfant.etiquette.length()) {
+                // Découper l'arête au point de divergence
+                Noeud<V> milieu = new Noeud<>(enfant.etiquette.substring(0, commun));
+                enfant.etiquette = enfant.etiquette.substring(commun);
+                milieu.enfants.put(enfant.etiquette.charAt(0), enfant);
+                noeud.enfants.put(milieu.etiquette.charAt(0), milieu);
+                enfant = milieu;
+            }
+            noeud = enfant;
+            i += commun;
+        }
+
+        if (noeud.valeur == null) {
+            taille++;
+        }
+        noeud.valeur = valeur;
+    }
+
+    /**
+     * Retirer la clé ; renvoie l'ancienne valeur ou null
+     */
+    public V supprimer(String cle) {
+        List<Noeud<V>> chemin = new ArrayList<>();
+        Noeud<V> noeud = racine;
+        int i = 0;
+        while (i < cle.length()) {
+            Noeud<V> enfant = noeud.enfants.get(cle.charAt(i));
+            if (enfant == null || !cle.startsWith(enfant.etiquette, i)) {
+                return null;
+            }
+            chemin.add(noeud);
+            i += enfant.etiquette.length();
+            noeud = enfant;
+        }
+        if (noeud.valeur == null || noeud == racine) {
+            return null;
+        }
+
+        V ancienne = noeud.valeur;
+        noeud.valeur = null;
+        taille--;
+
+        // Garder l'arbre compressé : supprimer la feuille vide, fusionner
+        // un nœud sans valeur qui n'a plus qu'un enfant
+        Noeud<V> parent = chemin.get(chemin.size() - 1);
+        if (noeud.enfants.isEmpty()) {
+            parent.enfants.remove(noeud.etiquette.charAt(0));
+            if (parent != racine && parent.valeur == null && parent.enfants.size() == 1) {
+                fusionner(parent);
+            }
+        } else if (noeud.enfants.size() == 1) {
+            fusionner(noeud);
+        }
+        return ancienne;
+    }
+
+    /**
+     * Clés commençant par le préfixe et dont la valeur passe le filtre,
+     * dans l'ordre lexicographique, au plus « limite »
+     */
+    public List<Map.Entry<String, V>> completer(String prefixe, int limite, Predicate<V> filtre) {
+        List<Map.Entry<String, V>> resultats = new ArrayList<>();
+        Noeud<V> noeud = racine;
+        StringBuilder cle = new StringBuilder();
+        int i = 0;
+        while (i < prefixe.length()) {
+            Noeud<V> enfant = noeud.enfants.get(prefixe.charAt(i));
+            if (enfant == null) {
+                return resultats;
+            }
+            String reste = prefixe.substring(i);
+            if (enfant.etiquette.startsWith(reste)) {
+                // Le préfixe se termine au milieu de cette arête
+                cle.append(enfant.etiquette);
+                noeud = enfant;
+                break;
+            }
+            if (!reste.startsWith(enfant.etiquette)) {
+                return resultats;
+            }
+            cle.append(enfant.etiquette);
+            i += enfant.etiquette.length();
+            noeud = enfant;
+        }
+
+        parcourir(noeud, cle, limite, filtre, resultats);
+        return resultats;
+    }
+
+    private void parcourir(Noeud<V> noeud, StringBuilder cle, int limite, Predicate<V> filtre,
+                           List<Map.Entry<String, V>> resultats) {
+        if (noeud.valeur != null && filtre.test(noeud.valeur)) {
+            resultats.add(new AbstractMap.SimpleImmutableEntry<>(cle.toString(), noeud.valeur));
+        }
+        for (Noeud<V> enfant : noeud.enfants.values()) {
+            if (resultats.size() >= limite) {
+                return;
+            }
+            int longueur = cle.length();
+            cle.append(enfant.etiquette);
+            parcourir(enfant, cle, limite, filtre, resultats);
+            cle.setLength(longueur);
+        }
+    }
+
+    private void fusionner(Noeud<V> noeud) {
+        Noeud<V> seul = noeud.enfants.firstEntry().getValue();
+        noeud.etiquette = noeud.etiquette + seul.etiquette;
+        noeud.valeur = seul.valeur;
+        noeud.enfants.clear();
+        noeud.enfants.putAll(seul.enfants);
+    }
+
+    private static int prefixeCommun(String etiquette, String cle, int debut) {
+        int n = Math.min(etiquette.length(), cle.length() - debut);
+        int i = 0;
+        while (i < n && etiquette.charAt(i) == cle.charAt(debut + i)) {
+            i++;
+        }
+        return i;
+    }
+}